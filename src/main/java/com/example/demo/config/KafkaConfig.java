@@ -1,12 +1,29 @@
 package com.example.demo.config;
 
+import com.example.demo.kafka.CoalescingSender;
+import com.example.demo.kafka.KeyOrderedExecutor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.util.backoff.FixedBackOff;
 
+import java.time.Duration;
+import java.util.Collection;
+
 @Configuration
 @EnableKafka
 @Slf4j
@@ -18,4 +35,54 @@ public class KafkaConfig {
             log.error("Глобальная ошибка в листнере кафки: {}, {}", e.getMessage(), e.getCause().getMessage());
         }, new FixedBackOff(0L, 0L));
     }
+
+    /**
+     * Фабрика для {@link com.example.demo.kafka.ListenerOneKeyOrdered}: записи подтверждаются вручную и не по порядку,
+     * а контейнер коммитит оффсет только когда закрыты все пропуски перед ним.
+     * <p>
+     * При отзыве партиций очереди {@link KeyOrderedExecutor} дожидаются до коммита: подтверждения записей,
+     * которые еще в очередях, должны попасть в этот коммит, и записи отозванной партиции не должны применяться
+     * после того, как она перешла к другому консьюмеру.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "kafka.listener.mode", havingValue = "key-ordered")
+    ConcurrentKafkaListenerContainerFactory<Object, Object> keyOrderedKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            KeyOrderedExecutor keyOrderedExecutor) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                try {
+                    keyOrderedExecutor.drain();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return factory;
+    }
+
+    /**
+     * Схлопывание значений по ключу перед отправкой, используется в fire-and-forget отправках KafkaController.
+     * Размер отброшенного значения оцениваем по его JSON - ровно так его сериализовал бы JsonSerializer.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "kafka.producer.coalescing.enabled", havingValue = "true")
+    CoalescingSender<Object> coalescingSender(KafkaTemplate<String, Object> kafkaTemplate,
+                                              ObjectMapper objectMapper,
+                                              @Value("${kafka.producer.coalescing.window-ms}") long windowMs,
+                                              @Value("${kafka.producer.coalescing.max-keys}") int maxKeys) {
+        return new CoalescingSender<>(kafkaTemplate, Duration.ofMillis(windowMs), maxKeys, value -> {
+            try {
+                return objectMapper.writeValueAsBytes(value).length;
+            } catch (JsonProcessingException e) {
+                return 0;
+            }
+        });
+    }
 }
@@ -0,0 +1,50 @@
+package com.example.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.AbstractKafkaListenerContainerFactory;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Опциональный запуск на виртуальных потоках (preview в Java 19, нужен --enable-preview - см. профиль jdk19-preview).
+ * Tomcat перестает упираться в server.tomcat.threads.max: блокирующий запрос занимает виртуальный поток,
+ * а не один из десяти потоков пула.
+ */
+@Configuration
+@ConditionalOnProperty(name = "virtual-threads.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig {
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("Обработка HTTP запросов на виртуальных потоках");
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Потоки консьюмеров всех фабрик листнеров тоже делаем виртуальными - обработка записей идет в них.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "virtual-threads.listeners-enabled", havingValue = "true")
+    static BeanPostProcessor virtualThreadListenerPostProcessor() {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractKafkaListenerContainerFactory<?, ?, ?> factory) {
+                    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+                    executor.setThreadFactory(Thread.ofVirtual().name("kafka-vt-", 0).factory());
+                    factory.getContainerProperties().setListenerTaskExecutor(executor);
+                    log.info("Листнеры фабрики {} работают на виртуальных потоках", beanName);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.config;
+
+import com.example.demo.websocket.ChangeFeedHandler;
+import com.example.demo.websocket.ThroughputFeedHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Обычный WebSocket без STOMP: у simple broker STOMP каждая сессия копит очередь сообщений,
+ * а нам нужно схлопывание для медленных клиентов (см. {@link com.example.demo.websocket.ConflatingSession}).
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final ThroughputFeedHandler throughputFeedHandler;
+    private final ChangeFeedHandler changeFeedHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(throughputFeedHandler, "/ws/throughput").setAllowedOrigins("*");
+        registry.addHandler(changeFeedHandler, "/ws/changes").setAllowedOrigins("*");
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    static ExecutorService webSocketSendExecutor(@Value("${websocket.send-threads}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("ws-send-"));
+    }
+}
@@ -1,16 +1,33 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.dto.KafkaRecordDto;
+import com.example.demo.dto.LoadResultDto;
+import com.example.demo.dto.SendResultDto;
 import com.example.demo.dto.UnknownDto;
+import com.example.demo.kafka.BulkLoader;
+import com.example.demo.kafka.CoalescingSender;
+import com.example.demo.kafka.TransactionalSender;
+import com.example.demo.serde.ValueFormat;
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static java.lang.String.format;
 
@@ -20,13 +37,17 @@ import static java.lang.String.format;
 public class KafkaController {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectProvider<CoalescingSender<Object>> coalescingSender;
+    private final TransactionalSender transactionalSender;
+    private final BulkLoader bulkLoader;
 
     @PostMapping("/send")
-    public String sendMessage(@RequestBody(required = false) Integer topicNum) {
+    public String sendMessage(@RequestBody(required = false) Integer topicNum,
+                              @RequestParam(defaultValue = "JSON") ValueFormat format) {
         KafkaMessageDto data = KafkaMessageDto.builder()
                 .value("some-string")
                 .build();
-        return send(topicNum, data);
+        return send(topicNum, UUID.randomUUID().toString(), data, format);
     }
 
     @PostMapping("/send-unknown")
@@ -34,17 +55,135 @@ public class KafkaController {
         return send(topicNum, UnknownDto.empty());
     }
 
+    /**
+     * Отправляет все записи разом, не дожидаясь подтверждения каждой по отдельности, и отвечает
+     * только после того, как брокер подтвердит (или отвергнет) каждую из них.
+     */
+    @PostMapping("/send-batch")
+    public List<SendResultDto> sendBatch(@RequestParam(required = false) Integer topicNum,
+                                         @RequestParam(defaultValue = "JSON") ValueFormat format,
+                                         @RequestBody List<KafkaRecordDto> records) {
+        String topicName = getTopicName(topicNum);
+        List<CompletableFuture<SendResultDto>> futures = records.stream()
+                .map(record -> sendWithAck(topicName, record, format))
+                .toList();
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+    }
+
+    /**
+     * Как /send-batch, но все записи уходят одной транзакцией идемпотентного продюсера: консьюмеры с read_committed
+     * увидят либо все обновления пачки, либо ни одного.
+     */
+    @PostMapping("/send-batch-tx")
+    public List<SendResultDto> sendBatchTransactional(@RequestParam(required = false) Integer topicNum,
+                                                      @RequestParam(defaultValue = "JSON") ValueFormat format,
+                                                      @RequestBody List<KafkaRecordDto> records) {
+        String topicName = getTopicName(topicNum);
+        List<ProducerRecord<String, Object>> producerRecords = records.stream()
+                .map(record -> createRecord(topicName, record, format))
+                .toList();
+        return transactionalSender.sendBatch(producerRecords);
+    }
+
+    /**
+     * Потоковая загрузка большого числа записей: тело - NDJSON, по {"key": ..., "value": ...} на строку.
+     * Тело читается по мере отправки, с ограничением числа неподтвержденных записей (см. {@link BulkLoader}).
+     */
+    @PostMapping(value = "/load", consumes = "application/x-ndjson")
+    public LoadResultDto load(@RequestParam(required = false) Integer topicNum,
+                              @RequestParam(defaultValue = "JSON") ValueFormat format,
+                              InputStream body) throws IOException {
+        String topicName = getTopicName(topicNum);
+        return bulkLoader.load(body, record -> createRecord(topicName, record, format));
+    }
+
+    /**
+     * Отправляет tombstone - запись с null значением, по которой compacted топик удаляет ключ.
+     */
+    @DeleteMapping("/delete/{key}")
+    public String delete(@PathVariable String key, @RequestParam(required = false) Integer topicNum) {
+        return send(topicNum, key, null);
+    }
+
+    @PostMapping("/delete-batch")
+    public List<SendResultDto> deleteBatch(@RequestParam(required = false) Integer topicNum,
+                                           @RequestBody List<String> keys) {
+        String topicName = getTopicName(topicNum);
+        List<CompletableFuture<SendResultDto>> futures = keys.stream()
+                .map(key -> sendWithAck(topicName, key, null, ValueFormat.JSON))
+                .toList();
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+    }
+
+    private CompletableFuture<SendResultDto> sendWithAck(String topicName, KafkaRecordDto record, ValueFormat format) {
+        return sendWithAck(createRecord(topicName, record, format));
+    }
+
+    private CompletableFuture<SendResultDto> sendWithAck(String topicName, String key, Object data, ValueFormat format) {
+        return sendWithAck(createRecord(topicName, key, data, format));
+    }
+
+    private CompletableFuture<SendResultDto> sendWithAck(ProducerRecord<String, Object> record) {
+        String key = record.key();
+        try {
+            return kafkaTemplate.send(record)
+                    .handle((result, e) -> {
+                        if (e != null) {
+                            return SendResultDto.failure(key, e);
+                        }
+                        RecordMetadata metadata = result.getRecordMetadata();
+                        return SendResultDto.success(key, metadata.partition(), metadata.offset());
+                    });
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(SendResultDto.failure(key, e));
+        }
+    }
+
     private String send(Integer topicNum, Object data) {
         String key = UUID.randomUUID().toString();
-        kafkaTemplate.send(getTopicName(topicNum), key, data);
+        return send(topicNum, key, data);
+    }
+
+    //схлопывание по ключу работает только с JSON - формат задается заголовком записи, а CoalescingSender их не хранит
+    private String send(Integer topicNum, String key, Object data, ValueFormat format) {
+        if (format == ValueFormat.JSON) {
+            return send(topicNum, key, data);
+        }
+        kafkaTemplate.send(createRecord(getTopicName(topicNum), key, data, format));
         return key;
     }
 
+    //если включено схлопывание по ключу - отправляем через него, результат отправки здесь все равно не нужен
     private String send(Integer topicNum, String key, Object data) {
-        kafkaTemplate.send(getTopicName(topicNum), key, data);
+        CoalescingSender<Object> sender = coalescingSender.getIfAvailable();
+        if (sender != null) {
+            sender.send(getTopicName(topicNum), key, data);
+        } else {
+            kafkaTemplate.send(getTopicName(topicNum), key, data);
+        }
         return key;
     }
 
+    private static ProducerRecord<String, Object> createRecord(String topicName, KafkaRecordDto record, ValueFormat format) {
+        String key = Optional.ofNullable(record.getKey()).orElseGet(() -> UUID.randomUUID().toString());
+        KafkaMessageDto data = KafkaMessageDto.builder()
+                .value(record.getValue())
+                .build();
+        return createRecord(topicName, key, data, format);
+    }
+
+    private static ProducerRecord<String, Object> createRecord(String topicName, String key, Object data, ValueFormat format) {
+        ProducerRecord<String, Object> record = new ProducerRecord<>(topicName, key, data);
+        if (format != ValueFormat.JSON) {
+            format.addTo(record.headers());
+        }
+        return record;
+    }
+
     private String getTopicName(Integer topicNum) {
         return Optional.ofNullable(topicNum)
                 .map(this::computeTopicName)
@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.metrics.KafkaClientMetrics;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.actuate.metrics.MetricsEndpoint;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,6 +16,7 @@ import java.util.List;
 public class MetricsController {
 
     private final MetricsEndpoint metricsEndpoint;
+    private final KafkaClientMetrics kafkaClientMetrics;
 
     private record Stat(String name, List<Double> values) {}
 
@@ -29,4 +31,9 @@ public class MetricsController {
                 })
                 .toList();
     }
+
+    @GetMapping("/kafka")
+    public KafkaClientMetrics.Snapshot getKafkaMetrics() {
+        return kafkaClientMetrics.getSnapshot();
+    }
 }
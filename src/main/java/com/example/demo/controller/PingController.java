@@ -2,6 +2,7 @@ package com.example.demo.controller;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -14,7 +15,7 @@ public class PingController {
     }
 
     @GetMapping("/sleep")
-    public void sleep() throws InterruptedException {
-        Thread.sleep(30_000);
+    public void sleep(@RequestParam(defaultValue = "30000") long ms) throws InterruptedException {
+        Thread.sleep(ms);
     }
 }
@@ -0,0 +1,67 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.state.BootstrapTracker;
+import com.example.demo.state.IndexedLookup;
+import com.example.demo.state.SortedStateExporter;
+import com.example.demo.state.TopicStateStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/state")
+@RequiredArgsConstructor
+public class StateController {
+
+    private final TopicStateStore stateStore;
+    private final BootstrapTracker bootstrapTracker;
+    private final ObjectProvider<IndexedLookup> indexedLookup;
+    private final SortedStateExporter sortedStateExporter;
+
+    @GetMapping("/count")
+    public int count() {
+        return stateStore.count();
+    }
+
+    @GetMapping("/bootstrap")
+    public List<BootstrapTracker.PartitionProgress> bootstrapProgress() {
+        return bootstrapTracker.getProgress();
+    }
+
+    @GetMapping("/index")
+    public ResponseEntity<IndexedLookup.Stats> indexStats() {
+        return ResponseEntity.of(Optional.ofNullable(indexedLookup.getIfAvailable()).map(IndexedLookup::getStats));
+    }
+
+    /**
+     * Значение ключа по индексу оффсетов, с чтением записи из кафки - без хранения значений в памяти.
+     */
+    @GetMapping("/index/{key}")
+    public ResponseEntity<Object> getIndexed(@PathVariable String key) {
+        return ResponseEntity.of(Optional.ofNullable(indexedLookup.getIfAvailable()).flatMap(lookup -> lookup.get(key)));
+    }
+
+    /**
+     * Выгрузка последних значений всех ключей топика в отсортированный сжатый файл, см. {@link SortedStateExporter}.
+     */
+    @PostMapping("/export")
+    public SortedStateExporter.ExportResult export(@RequestParam(defaultValue = "topic-1") String topic) throws IOException {
+        return sortedStateExporter.export(topic);
+    }
+
+    @GetMapping("/{key}")
+    public ResponseEntity<KafkaMessageDto> get(@PathVariable String key) {
+        return ResponseEntity.of(stateStore.get(key));
+    }
+}
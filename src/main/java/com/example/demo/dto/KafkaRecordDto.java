@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class KafkaRecordDto {
+
+    private String key;
+    private String value;
+}
@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class LoadResultDto {
+
+    private long records;
+    private long sent;
+    private long failed;
+    private long invalid;
+    private long durationMs;
+    private double throughput;
+    // первые несколько ошибок, для диагностики - все ошибки в памяти не держим
+    private List<String> errors;
+}
@@ -0,0 +1,35 @@
+package com.example.demo.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class SendResultDto {
+
+    public static SendResultDto success(String key, int partition, long offset) {
+        return SendResultDto.builder()
+                .key(key)
+                .partition(partition)
+                .offset(offset)
+                .build();
+    }
+
+    public static SendResultDto failure(String key, Throwable e) {
+        return SendResultDto.builder()
+                .key(key)
+                .error(e.getMessage())
+                .build();
+    }
+
+    private String key;
+    private Integer partition;
+    private Long offset;
+    private String error;
+}
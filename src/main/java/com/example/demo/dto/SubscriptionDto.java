@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class SubscriptionDto {
+
+    private List<String> keys;
+    private List<String> prefixes;
+}
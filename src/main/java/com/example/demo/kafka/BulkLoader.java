@@ -0,0 +1,132 @@
+package com.example.demo.kafka;
+
+import com.example.demo.dto.KafkaRecordDto;
+import com.example.demo.dto.LoadResultDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Потоковая загрузка NDJSON (по записи {"key": ..., "value": ...} на строку) в топик.
+ * Строки читаются по одной, а неподтвержденных брокером записей не больше max-in-flight: когда лимит выбран,
+ * чтение тела запроса останавливается до ack'ов, и клиент упирается в TCP окно. Память не зависит от размера входа.
+ */
+@Component
+@Slf4j
+public class BulkLoader {
+
+    private static final int MAX_ERRORS = 10;
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectReader recordReader;
+    private final int maxInFlight;
+
+    public BulkLoader(KafkaTemplate<String, Object> kafkaTemplate,
+                      ObjectMapper objectMapper,
+                      @Value("${kafka.producer.bulk-load.max-in-flight}") int maxInFlight) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.recordReader = objectMapper.readerFor(KafkaRecordDto.class);
+        this.maxInFlight = maxInFlight;
+    }
+
+    public LoadResultDto load(InputStream input, Function<KafkaRecordDto, ProducerRecord<String, Object>> toRecord) throws IOException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        LongAdder sent = new LongAdder();
+        LongAdder failed = new LongAdder();
+        List<String> errors = new ArrayList<>();
+        long records = 0;
+        long invalid = 0;
+        long lineNum = 0;
+
+        long before = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                lineNum++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                records++;
+                KafkaRecordDto record;
+                try {
+                    record = recordReader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    invalid++;
+                    addError(errors, format(lineNum, e.getOriginalMessage()));
+                    continue;
+                }
+
+                inFlight.acquireUninterruptibly();
+                long currentLine = lineNum;
+                try {
+                    kafkaTemplate.send(toRecord.apply(record))
+                            .whenComplete((result, e) -> {
+                                if (e == null) {
+                                    sent.increment();
+                                } else {
+                                    failed.increment();
+                                    addError(errors, format(currentLine, e.getMessage()));
+                                }
+                                inFlight.release();
+                            });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    failed.increment();
+                    addError(errors, format(currentLine, e.getMessage()));
+                }
+            }
+        } finally {
+            // дожидаемся ack'ов по всем отправленным записям, в том числе если клиент оборвал загрузку,
+            // что бы колбэки отправок не работали уже после выхода из метода
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+        long durationNanos = System.nanoTime() - before;
+
+        LoadResultDto result = LoadResultDto.builder()
+                .records(records)
+                .sent(sent.sum())
+                .failed(failed.sum())
+                .invalid(invalid)
+                .durationMs(durationNanos / 1_000_000)
+                .throughput(sent.sum() * 1_000_000_000.0 / Math.max(1, durationNanos))
+                .errors(snapshot(errors))
+                .build();
+        log.info("Загрузка завершена: {}", result);
+        return result;
+    }
+
+    private static String format(long lineNum, String error) {
+        return "Строка " + lineNum + ": " + error;
+    }
+
+    private static void addError(List<String> errors, String error) {
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+
+    private static List<String> snapshot(List<String> errors) {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Продюсер-прослойка перед {@link KafkaTemplate} для compacted топиков: в пределах окна (по времени или по числу ключей)
+ * хранит только последнее значение по каждому ключу и отправляет выживших одной пачкой. Промежуточные значения
+ * брокер все равно выкинул бы при компакции, а так они даже не уходят по сети.
+ * <p>
+ * Отправка идет под тем же локом, что и буферизация, поэтому значения одного ключа из разных окон не переупорядочиваются.
+ */
+@Slf4j
+public class CoalescingSender<V> implements AutoCloseable {
+
+    /**
+     * @param received         сколько записей пришло на отправку
+     * @param sent             сколько реально отправлено в кафку
+     * @param coalescedRecords сколько записей перезаписаны более новым значением и не отправлены
+     * @param coalescedBytes   сколько байт (ключ + значение) не отправлено
+     */
+    public record Stats(long received, long sent, long coalescedRecords, long coalescedBytes) {}
+
+    private record TopicKey(String topic, String key) {}
+
+    private final KafkaTemplate<String, V> kafkaTemplate;
+    private final int maxKeys;
+    private final ToIntFunction<V> valueSizer;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coalescing-sender-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Map<TopicKey, V> buffer = new LinkedHashMap<>();
+    private long received;
+    private long sent;
+    private long coalescedRecords;
+    private long coalescedBytes;
+
+    /**
+     * @param window     как часто сбрасывать буфер
+     * @param maxKeys    при скольких различных ключах в буфере сбрасывать его, не дожидаясь окна
+     * @param valueSizer оценка размера значения в байтах - вызывается только для отброшенных значений
+     */
+    public CoalescingSender(KafkaTemplate<String, V> kafkaTemplate, Duration window, int maxKeys, ToIntFunction<V> valueSizer) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.maxKeys = maxKeys;
+        this.valueSizer = valueSizer;
+        flusher.scheduleWithFixedDelay(this::flush, window.toMillis(), window.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void send(String topic, String key, V value) {
+        TopicKey topicKey = new TopicKey(topic, key);
+        boolean isReplaced = buffer.containsKey(topicKey);
+        V previous = buffer.put(topicKey, value);
+        received++;
+        if (isReplaced) {
+            coalescedRecords++;
+            coalescedBytes += sizeOf(key, previous);
+        }
+        if (buffer.size() >= maxKeys) {
+            flush();
+        }
+    }
+
+    /**
+     * @return future, которое завершится после ack от брокера по всем отправленным записям
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        if (buffer.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Map<TopicKey, V> toSend = buffer;
+        buffer = new LinkedHashMap<>();
+
+        List<CompletableFuture<?>> futures = new ArrayList<>(toSend.size());
+        toSend.forEach((topicKey, value) -> {
+            try {
+                futures.add(kafkaTemplate.send(topicKey.topic(), topicKey.key(), value));
+            } catch (Exception e) {
+                log.error("Не удалось отправить запись с ключом {} в топик {}: {}", topicKey.key(), topicKey.topic(), e.getMessage());
+            }
+        });
+        sent += futures.size();
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(received, sent, coalescedRecords, coalescedBytes);
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flush().join();
+    }
+
+    private long sizeOf(String key, V value) {
+        int keySize = key == null ? 0 : key.getBytes(StandardCharsets.UTF_8).length;
+        int valueSize = value == null ? 0 : valueSizer.applyAsInt(value);
+        return keySize + valueSize;
+    }
+}
@@ -1,18 +0,0 @@
-package com.example.demo.kafka;
-
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.listener.KafkaListenerErrorHandler;
-import org.springframework.kafka.listener.ListenerExecutionFailedException;
-import org.springframework.messaging.Message;
-import org.springframework.stereotype.Component;
-
-@Component
-@Slf4j
-public class KafkaErrorHandler implements KafkaListenerErrorHandler {
-
-    @Override
-    public Object handleError(Message<?> message, ListenerExecutionFailedException e) {
-        log.error("Сработал kafkaErrorHandler: {}, {}", e.getMessage(), e.getCause().getMessage());
-        return message;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.example.demo.kafka;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Пул обработчиков, в котором записи с одинаковым ключом всегда попадают в одну и ту же очередь (lane)
+ * и выполняются строго по порядку, а записи с разными ключами - параллельно. Для compacted топика порядок
+ * важен только в пределах ключа, поэтому так можно обрабатывать одну партицию на нескольких ядрах.
+ * <p>
+ * Очереди ограничены: если lane переполнена, поток консьюмера блокируется на {@link #submit} - это и есть backpressure.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.listener.mode", havingValue = "key-ordered")
+@Slf4j
+public class KeyOrderedExecutor {
+
+    private final List<BlockingQueue<Runnable>> lanes = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    public KeyOrderedExecutor(@Value("${kafka.listener.key-ordered.workers}") int workerCount,
+                              @Value("${kafka.listener.key-ordered.queue-capacity}") int queueCapacity) {
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<Runnable> lane = new ArrayBlockingQueue<>(queueCapacity);
+            Thread worker = new Thread(() -> runLane(lane), "key-ordered-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            lanes.add(lane);
+            workers.add(worker);
+        }
+    }
+
+    public void submit(String key, Runnable task) throws InterruptedException {
+        lanes.get(laneOf(key)).put(task);
+    }
+
+    /**
+     * Ждет, пока будут выполнены все задачи, поставленные до вызова. Нужен при отзыве партиций,
+     * что бы не применять записи партиции, которая уже принадлежит другому консьюмеру.
+     */
+    public void drain() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(lanes.size());
+        for (BlockingQueue<Runnable> lane : lanes) {
+            lane.put(latch::countDown);
+        }
+        latch.await();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    private int laneOf(String key) {
+        int hash = key == null ? 0 : key.hashCode();
+        return (hash & Integer.MAX_VALUE) % lanes.size();
+    }
+
+    private void runLane(BlockingQueue<Runnable> lane) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                lane.take().run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Ошибка в обработчике {}: {}", Thread.currentThread().getName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -1,51 +1,74 @@
 package com.example.demo.kafka;
 
 import com.example.demo.dto.KafkaMessageDto;
-import lombok.extern.slf4j.Slf4j;
+import com.example.demo.state.TopicStateUpdater;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.common.TopicPartition;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaHandler;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.KafkaNull;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.Map;
 
-import static java.lang.String.format;
+import static org.springframework.kafka.support.KafkaHeaders.OFFSET;
 import static org.springframework.kafka.support.KafkaHeaders.RECEIVED_KEY;
+import static org.springframework.kafka.support.KafkaHeaders.RECEIVED_PARTITION;
 import static org.springframework.kafka.support.KafkaHeaders.RECEIVED_TIMESTAMP;
 import static org.springframework.kafka.support.KafkaHeaders.RECEIVED_TOPIC;
 
 @Service
-@KafkaListener(topics = {"topic-1"})
-@Slf4j
+@KafkaListener(topics = {"topic-1"}, concurrency = "${state.bootstrap.concurrency}",
+               properties = {"group.instance.id=${kafka.consumer.group-instance-id}-topic-1"})
+@ConditionalOnProperty(name = "kafka.listener.mode", havingValue = "single", matchIfMissing = true)
+@RequiredArgsConstructor
 public class ListenerOne implements ConsumerSeekAware {
 
-    @Value("${is-reset-kafka-read-offset-on-startup}")
-    Boolean isNeedResetKafkaReadOffset;
+    private final TopicStateUpdater stateUpdater;
 
     @KafkaHandler
     public void KafkaMessageHandler(@Payload KafkaMessageDto dto,
                                     @Header(RECEIVED_KEY) String key,
                                     @Header(RECEIVED_TOPIC) String topicName,
+                                    @Header(RECEIVED_PARTITION) int partition,
+                                    @Header(OFFSET) long offset,
                                     @Header(RECEIVED_TIMESTAMP) Instant instant) {
-        log.info(format("Из топика '%s' вычитали сообщение с ключом %s и содержимым %s", topicName, key, dto.getValue()));
+        stateUpdater.put(topicName, partition, offset, key, dto);
+    }
+
+    @KafkaHandler
+    public void tombstoneHandler(@Payload(required = false) KafkaNull tombstone,
+                                 @Header(RECEIVED_KEY) String key,
+                                 @Header(RECEIVED_TOPIC) String topicName,
+                                 @Header(RECEIVED_PARTITION) int partition,
+                                 @Header(OFFSET) long offset) {
+        stateUpdater.remove(topicName, partition, offset, key);
     }
 
     @KafkaHandler(isDefault = true)
     public void errorHandler(Message<?> record) {
-        log.error("Пришло неизвестное сообщение: {}", record.toString());
+        MessageHeaders headers = record.getHeaders();
+        stateUpdater.skip(headers.get(RECEIVED_TOPIC, String.class),
+                          headers.get(RECEIVED_PARTITION, Integer.class),
+                          headers.get(OFFSET, Long.class),
+                          record);
     }
 
-    //Необходимо для откатывания оффсета в топике каждый раз при подключении, что б не заполнять очередь заново
     @Override
     public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
-        if (isNeedResetKafkaReadOffset) {
-            assignments.forEach((t, o) -> callback.seekToBeginning(t.topic(), t.partition()));
-        }
+        stateUpdater.onPartitionsAssigned(assignments, callback);
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        stateUpdater.onPartitionsRevoked(partitions);
     }
 }
@@ -0,0 +1,50 @@
+package com.example.demo.kafka;
+
+import com.example.demo.state.TopicStateUpdater;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетный вариант {@link ListenerOne}: получает сразу весь результат poll(). При ошибке сообщает индекс
+ * упавшей записи - DefaultErrorHandler закоммитит все, что было до нее, и отдаст ее в recoverer.
+ */
+@Service
+@ConditionalOnProperty(name = "kafka.listener.mode", havingValue = "batch")
+@RequiredArgsConstructor
+public class ListenerOneBatch implements ConsumerSeekAware {
+
+    private final TopicStateUpdater stateUpdater;
+
+    @KafkaListener(topics = {"topic-1"}, concurrency = "${state.bootstrap.concurrency}", batch = "true",
+                   properties = {"group.instance.id=${kafka.consumer.group-instance-id}-topic-1"})
+    public void batchHandler(List<ConsumerRecord<String, Object>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, Object> record = records.get(i);
+            try {
+                stateUpdater.apply(record.topic(), record.partition(), record.offset(), record.key(), record.value());
+            } catch (Exception e) {
+                throw new BatchListenerFailedException("Ошибка обработки записи №" + i + " в пачке", e, i);
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        stateUpdater.onPartitionsAssigned(assignments, callback);
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        stateUpdater.onPartitionsRevoked(partitions);
+    }
+}
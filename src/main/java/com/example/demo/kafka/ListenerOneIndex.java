@@ -0,0 +1,58 @@
+package com.example.demo.kafka;
+
+import com.example.demo.state.KeyOffsetIndex;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Строит {@link KeyOffsetIndex} по topic-1. Своя группа консьюмеров на каждый экземпляр (индекс локальный,
+ * поэтому экземпляру нужны все партиции и только свои оффсеты) и никакого сброса оффсетов при старте: индекс
+ * персистентный, поэтому продолжаем с закоммиченного места. Значения не десериализуются - нужны только ключ,
+ * позиция и признак tombstone.
+ */
+@Service
+@ConditionalOnProperty(name = "state.index.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ListenerOneIndex implements ConsumerSeekAware {
+
+    private final KeyOffsetIndex index;
+
+    private final Set<TopicPartition> rebuilt = ConcurrentHashMap.newKeySet();
+
+    @KafkaListener(id = "topic-1-index", topics = {"${state.index.topic}"}, groupId = "${state.index.group-id}", batch = "true",
+                   properties = {"value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer",
+                                 "auto.offset.reset=earliest"})
+    public void batchHandler(List<ConsumerRecord<String, byte[]>> records) {
+        for (ConsumerRecord<String, byte[]> record : records) {
+            if (record.key() == null) {
+                continue;
+            }
+            if (record.value() == null) {
+                index.remove(record.key());
+            } else {
+                index.put(record.key(), record.partition(), record.offset());
+            }
+        }
+    }
+
+    //Если файла индекса не было (первый запуск или файл удалили), закоммиченные оффсеты группы ему не соответствуют -
+    //строим индекс с начала топика
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (index.isCreated()) {
+            assignments.keySet().stream()
+                    .filter(rebuilt::add)
+                    .forEach(t -> callback.seekToBeginning(t.topic(), t.partition()));
+        }
+    }
+}
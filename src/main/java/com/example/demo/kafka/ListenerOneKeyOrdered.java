@@ -0,0 +1,62 @@
+package com.example.demo.kafka;
+
+import com.example.demo.state.TopicStateUpdater;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Вариант {@link ListenerOne}, который раздает записи одной партиции по {@link KeyOrderedExecutor}.
+ * Порядок сохраняется в пределах ключа, а оффсеты подтверждаются по мере обработки в любом порядке -
+ * контейнер с asyncAcks коммитит только непрерывный префикс обработанных оффсетов. По той же причине
+ * чекпоинт состояния двигается только до первой еще не примененной записи (см. {@link TopicStateUpdater#begin}).
+ * <p>
+ * При отзыве партиций очереди дожидаются до коммита оффсетов, см. фабрику keyOrderedKafkaListenerContainerFactory.
+ */
+@Service
+@ConditionalOnProperty(name = "kafka.listener.mode", havingValue = "key-ordered")
+@Slf4j
+@RequiredArgsConstructor
+public class ListenerOneKeyOrdered implements ConsumerSeekAware {
+
+    private final TopicStateUpdater stateUpdater;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+
+    @KafkaListener(topics = {"topic-1"},
+                   concurrency = "${state.bootstrap.concurrency}",
+                   containerFactory = "keyOrderedKafkaListenerContainerFactory",
+                   properties = {"group.instance.id=${kafka.consumer.group-instance-id}-topic-1"})
+    public void handler(ConsumerRecord<String, Object> record, Acknowledgment ack) throws InterruptedException {
+        stateUpdater.begin(record.partition(), record.offset());
+        keyOrderedExecutor.submit(record.key(), () -> {
+            try {
+                stateUpdater.apply(record.topic(), record.partition(), record.offset(), record.key(), record.value());
+            } catch (Exception e) {
+                //как и globalErrorHandler - логируем и идем дальше, иначе дырка в оффсетах навсегда остановит коммиты
+                log.error("Ошибка обработки записи {}-{}@{}: {}", record.topic(), record.partition(), record.offset(), e.getMessage());
+                stateUpdater.release(record.topic(), record.partition(), record.offset());
+            } finally {
+                ack.acknowledge();
+            }
+        });
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        stateUpdater.onPartitionsAssigned(assignments, callback);
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        stateUpdater.onPartitionsRevoked(partitions);
+    }
+}
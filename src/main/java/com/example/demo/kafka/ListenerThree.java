@@ -1,45 +1,86 @@
 package com.example.demo.kafka;
 
 import com.example.demo.dto.KafkaMessageDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
 import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
 import java.util.Map;
 
-import static java.lang.String.format;
-import static org.springframework.kafka.support.KafkaHeaders.RECEIVED_KEY;
-import static org.springframework.kafka.support.KafkaHeaders.RECEIVED_TIMESTAMP;
-import static org.springframework.kafka.support.KafkaHeaders.RECEIVED_TOPIC;
-
+/**
+ * Упавшая запись не блокирует партицию: она уходит в retry топики (topic-3-retry-0, -1, ...) с растущей задержкой,
+ * а после последней попытки - в topic-3-dlt. Записи за ней в topic-3 обрабатываются без ожидания.
+ */
 @Service
-@KafkaListener(topics = {"topic-3"}, errorHandler = "kafkaErrorHandler")
+//key-ordered режим касается только topic-1, поэтому пакетный вариант заменяет этот листнер только в режиме batch
+@ConditionalOnExpression("'${kafka.listener.mode:single}' != 'batch'")
 @Slf4j
 public class ListenerThree implements ConsumerSeekAware {
 
+    public static final String TOPIC = "topic-3";
+    //значение, обработка которого всегда падает - для проверки retry топиков
+    public static final String POISON_VALUE = "poison";
+
     @Value("${is-reset-kafka-read-offset-on-startup}")
     Boolean isNeedResetKafkaReadOffset;
 
-    @KafkaHandler
-    public void KafkaMessageHandler(@Payload KafkaMessageDto dto,
-                                    @Header(RECEIVED_KEY) String key,
-                                    @Header(RECEIVED_TOPIC) String topicName,
-                                    @Header(RECEIVED_TIMESTAMP) Instant instant) {
-        throw new RuntimeException("Просто какая-то ошибка при обработке");
+    private final Counter processed;
+    private final Counter deadLettered;
+
+    public ListenerThree(MeterRegistry meterRegistry) {
+        this.processed = meterRegistry.counter("kafka.listener.records", "topic", TOPIC, "outcome", "processed");
+        this.deadLettered = meterRegistry.counter("kafka.listener.records", "topic", TOPIC, "outcome", "dead-letter");
+    }
+
+    @RetryableTopic(attempts = "${kafka.retry.attempts}",
+                    backoff = @Backoff(delayExpression = "${kafka.retry.delay-ms}",
+                                       multiplierExpression = "${kafka.retry.multiplier}",
+                                       maxDelayExpression = "${kafka.retry.max-delay-ms}"),
+                    topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+                    kafkaTemplate = "kafkaTemplate")
+    @KafkaListener(topics = {TOPIC})
+    public void handler(ConsumerRecord<String, Object> record) {
+        //Tombstone - запись с null значением, для compacted топика означает удаление ключа
+        if (record.value() == null) {
+            log.info("Из топика '{}' вычитали tombstone для ключа {}", record.topic(), record.key());
+        } else if (record.value() instanceof KafkaMessageDto dto) {
+            if (POISON_VALUE.equals(dto.getValue())) {
+                throw new RuntimeException("Просто какая-то ошибка при обработке");
+            }
+        } else {
+            log.error("Пришло неизвестное сообщение: {}", record);
+        }
+        processed.increment();
+    }
+
+    @DltHandler
+    public void dltHandler(ConsumerRecord<String, Object> record,
+                           @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error) {
+        log.error("Запись с ключом {} отправлена в '{}' после всех попыток: {}", record.key(), record.topic(), error);
+        deadLettered.increment();
     }
 
-    //Необходимо для откатывания оффсета в топике каждый раз при подключении, что б не заполнять очередь заново
+    //Необходимо для откатывания оффсета в топике каждый раз при подключении, что б не заполнять очередь заново.
+    //Retry и DLT топики не откатываем - иначе при каждом подключении упавшие записи проходили бы попытки заново
     @Override
     public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
         if (isNeedResetKafkaReadOffset) {
-            assignments.forEach((t, o) -> callback.seekToBeginning(t.topic(), t.partition()));
+            assignments.keySet().stream()
+                    .filter(t -> t.topic().equals(TOPIC))
+                    .forEach(t -> callback.seekToBeginning(t.topic(), t.partition()));
         }
     }
 }
@@ -0,0 +1,62 @@
+package com.example.demo.kafka;
+
+import com.example.demo.dto.KafkaMessageDto;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетный вариант {@link ListenerThree}. Ошибка пробрасывается как {@link BatchListenerFailedException} с индексом
+ * записи, поэтому DefaultErrorHandler не отбрасывает всю пачку, а коммитит записи до упавшей и отдает в recoverer только ее.
+ */
+@Service
+@ConditionalOnProperty(name = "kafka.listener.mode", havingValue = "batch")
+@Slf4j
+public class ListenerThreeBatch implements ConsumerSeekAware {
+
+    @Value("${is-reset-kafka-read-offset-on-startup}")
+    Boolean isNeedResetKafkaReadOffset;
+
+    @KafkaListener(topics = {"topic-3"}, batch = "true")
+    public void batchHandler(List<ConsumerRecord<String, Object>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, Object> record = records.get(i);
+            try {
+                process(record);
+            } catch (Exception e) {
+                throw new BatchListenerFailedException("Ошибка обработки записи №" + i + " в пачке", e, i);
+            }
+        }
+    }
+
+    private void process(ConsumerRecord<String, Object> record) {
+        if (record.value() == null) {
+            log.info("Из топика '{}' вычитали tombstone для ключа {}", record.topic(), record.key());
+            return;
+        }
+        if (record.value() instanceof KafkaMessageDto dto) {
+            if (ListenerThree.POISON_VALUE.equals(dto.getValue())) {
+                throw new RuntimeException("Просто какая-то ошибка при обработке");
+            }
+            return;
+        }
+        log.error("Пришло неизвестное сообщение: {}", record);
+    }
+
+    //Необходимо для откатывания оффсета в топике каждый раз при подключении, что б не заполнять очередь заново
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (isNeedResetKafkaReadOffset) {
+            assignments.forEach((t, o) -> callback.seekToBeginning(t.topic(), t.partition()));
+        }
+    }
+}
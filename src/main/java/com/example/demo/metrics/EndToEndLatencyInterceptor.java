@@ -0,0 +1,60 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerInterceptor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка от отправки записи продюсером (CreateTime) до ее получения консьюмером, по топикам.
+ * Подключается через interceptor.classes консьюмера, поэтому работает для листнеров в любом режиме.
+ * Кафка создает интерсептор сама, поэтому таймеры регистрируются в глобальном реестре Micrometer,
+ * к которому Spring Boot подключает свой.
+ */
+public class EndToEndLatencyInterceptor implements ConsumerInterceptor<Object, Object> {
+
+    public static final String TIMER_NAME = "kafka.consumer.e2e.latency";
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public ConsumerRecords<Object, Object> onConsume(ConsumerRecords<Object, Object> records) {
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<Object, Object> record : records) {
+            if (record.timestampType() == TimestampType.CREATE_TIME) {
+                timers.computeIfAbsent(record.topic(), EndToEndLatencyInterceptor::timer)
+                        .record(Math.max(0, now - record.timestamp()), TimeUnit.MILLISECONDS);
+            }
+        }
+        return records;
+    }
+
+    private static Timer timer(String topic) {
+        return Timer.builder(TIMER_NAME)
+                .tag("topic", topic)
+                .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public void onCommit(Map<TopicPartition, OffsetAndMetadata> offsets) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+}
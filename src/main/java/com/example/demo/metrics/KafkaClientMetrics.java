@@ -0,0 +1,195 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Снимок метрик кафка клиентов: продюсера {@link KafkaTemplate} и консьюмеров всех листнеров.
+ * Метрики клиентов собираются по расписанию, а эндпоинт отдает последний снимок - опрос эндпоинта
+ * не трогает ни продюсер, ни консьюмеры.
+ */
+@Component
+@RequiredArgsConstructor
+public class KafkaClientMetrics {
+
+    private static final String PRODUCER_GROUP = "producer-metrics";
+    private static final String PRODUCER_TOPIC_GROUP = "producer-topic-metrics";
+    private static final String FETCH_GROUP = "consumer-fetch-manager-metrics";
+
+    public record Snapshot(Instant takenAt, List<ProducerMetrics> producers, List<ConsumerMetrics> consumers,
+                           List<TopicMetrics> topics) {}
+
+    public record ProducerMetrics(String clientId, Double recordSendRate, Double batchSizeAvg,
+                                  Double requestLatencyAvg, Double requestLatencyMax) {}
+
+    public record ConsumerMetrics(String listenerId, String clientId, Double recordsConsumedRate,
+                                  Double fetchLatencyAvg, Double fetchLatencyMax, Double recordsLagMax,
+                                  List<PartitionLag> lag) {}
+
+    public record PartitionLag(String topic, int partition, Double recordsLag) {}
+
+    /**
+     * Сводка по топику: суммы по всем клиентам инстанса и задержка от отправки до получения
+     * (см. {@link EndToEndLatencyInterceptor}) за последнюю минуту.
+     */
+    public record TopicMetrics(String topic, double produceRate, double consumeRate, double lag,
+                               Double e2eP50Ms, Double e2eP90Ms, Double e2eP99Ms, Double e2eP999Ms, Double e2eMaxMs) {}
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaListenerEndpointRegistry registry;
+    private final MeterRegistry meterRegistry;
+
+    private volatile Snapshot snapshot = new Snapshot(Instant.EPOCH, List.of(), List.of(), List.of());
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.metrics.refresh-interval-ms}")
+    public void refresh() {
+        List<ProducerMetrics> producers = new ArrayList<>();
+        Map<MetricName, ? extends Metric> producerMetrics = kafkaTemplate.metrics();
+        clientIds(producerMetrics, PRODUCER_GROUP).forEach(clientId -> producers.add(new ProducerMetrics(
+                clientId,
+                value(producerMetrics, PRODUCER_GROUP, "record-send-rate", clientId),
+                value(producerMetrics, PRODUCER_GROUP, "batch-size-avg", clientId),
+                value(producerMetrics, PRODUCER_GROUP, "request-latency-avg", clientId),
+                value(producerMetrics, PRODUCER_GROUP, "request-latency-max", clientId))));
+
+        Map<String, TopicTotals> topics = new TreeMap<>();
+        sumByTopic(producerMetrics, PRODUCER_TOPIC_GROUP, "record-send-rate")
+                .forEach((topic, rate) -> topics.computeIfAbsent(topic, t -> new TopicTotals()).produceRate += rate);
+
+        List<ConsumerMetrics> consumers = new ArrayList<>();
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            container.metrics().forEach((clientId, metrics) -> {
+                sumByTopic(metrics, FETCH_GROUP, "records-consumed-rate")
+                        .forEach((topic, rate) -> topics.computeIfAbsent(topic, t -> new TopicTotals()).consumeRate += rate);
+                sumByTopic(metrics, FETCH_GROUP, "records-lag")
+                        .forEach((topic, lag) -> topics.computeIfAbsent(topic, t -> new TopicTotals()).lag += lag);
+                consumers.add(new ConsumerMetrics(
+                        container.getListenerId(),
+                        clientId,
+                        value(metrics, FETCH_GROUP, "records-consumed-rate", clientId),
+                        value(metrics, FETCH_GROUP, "fetch-latency-avg", clientId),
+                        value(metrics, FETCH_GROUP, "fetch-latency-max", clientId),
+                        value(metrics, FETCH_GROUP, "records-lag-max", clientId),
+                        partitionLag(metrics)));
+            });
+        }
+        consumers.sort(Comparator.comparing(ConsumerMetrics::clientId));
+
+        snapshot = new Snapshot(Instant.now(), producers, consumers, topicMetrics(topics));
+    }
+
+    private static class TopicTotals {
+        double produceRate;
+        double consumeRate;
+        double lag;
+    }
+
+    private List<TopicMetrics> topicMetrics(Map<String, TopicTotals> topics) {
+        Map<String, Timer> latencies = new TreeMap<>();
+        meterRegistry.find(EndToEndLatencyInterceptor.TIMER_NAME).timers()
+                .forEach(timer -> latencies.put(timer.getId().getTag("topic"), timer));
+        latencies.keySet().forEach(topic -> topics.computeIfAbsent(topic, t -> new TopicTotals()));
+
+        return topics.entrySet().stream()
+                .map(e -> {
+                    TopicTotals totals = e.getValue();
+                    Timer timer = latencies.get(e.getKey());
+                    ValueAtPercentile[] percentiles = timer == null ? new ValueAtPercentile[0] : timer.takeSnapshot().percentileValues();
+                    return new TopicMetrics(e.getKey(), totals.produceRate, totals.consumeRate, totals.lag,
+                                            percentile(percentiles, 0.5), percentile(percentiles, 0.9),
+                                            percentile(percentiles, 0.99), percentile(percentiles, 0.999),
+                                            timer == null ? null : timer.max(TimeUnit.MILLISECONDS));
+                })
+                .toList();
+    }
+
+    private static Double percentile(ValueAtPercentile[] percentiles, double percentile) {
+        for (ValueAtPercentile value : percentiles) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return null;
+    }
+
+    private static List<String> clientIds(Map<MetricName, ? extends Metric> metrics, String group) {
+        return metrics.keySet().stream()
+                .filter(name -> name.group().equals(group))
+                .map(name -> name.tags().get("client-id"))
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Метрика клиента целиком, без разбивки по топикам/партициям - у таких только тег client-id.
+     */
+    private static Double value(Map<MetricName, ? extends Metric> metrics, String group, String name, String clientId) {
+        return metrics.entrySet().stream()
+                .filter(e -> e.getKey().group().equals(group)
+                             && e.getKey().name().equals(name)
+                             && e.getKey().tags().size() == 1
+                             && clientId.equals(e.getKey().tags().get("client-id")))
+                .map(e -> toDouble(e.getValue()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Сумма метрики с тегом topic по топикам. Метрики записей на уровне партиций (records-lag)
+     * тоже имеют тег topic, поэтому сумма records-lag - лаг топика.
+     */
+    private static Map<String, Double> sumByTopic(Map<MetricName, ? extends Metric> metrics, String group, String name) {
+        Map<String, Double> sums = new TreeMap<>();
+        metrics.forEach((metricName, metric) -> {
+            String topic = metricName.tags().get("topic");
+            Double value = toDouble(metric);
+            if (topic != null && value != null && metricName.group().equals(group) && metricName.name().equals(name)) {
+                sums.merge(topic, value, Double::sum);
+            }
+        });
+        return sums;
+    }
+
+    private static List<PartitionLag> partitionLag(Map<MetricName, ? extends Metric> metrics) {
+        return metrics.entrySet().stream()
+                .filter(e -> e.getKey().group().equals(FETCH_GROUP)
+                             && e.getKey().name().equals("records-lag")
+                             && e.getKey().tags().containsKey("partition"))
+                .map(e -> new PartitionLag(e.getKey().tags().get("topic"),
+                                           Integer.parseInt(e.getKey().tags().get("partition")),
+                                           toDouble(e.getValue())))
+                .sorted(Comparator.comparing(PartitionLag::topic).thenComparing(PartitionLag::partition))
+                .toList();
+    }
+
+    /**
+     * Пока событий не было, кафка отдает NaN (или -Infinity для max) - в JSON это будет null.
+     */
+    private static Double toDouble(Metric metric) {
+        return metric.metricValue() instanceof Number number && Double.isFinite(number.doubleValue())
+                ? number.doubleValue()
+                : null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.serde;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.Map;
+
+/**
+ * Десериализатор значений для application.yaml: бинарные записи ({@link SchemaBinaryCodec#isBinary})
+ * читаются по схеме, остальные - как JSON ({@link TypeIdJsonDeserializer}). Листнерам формат не важен,
+ * они получают те же DTO.
+ */
+public class FormatDetectingDeserializer implements Deserializer<Object> {
+
+    private final TypeIdJsonDeserializer json = new TypeIdJsonDeserializer();
+    private final SchemaBinaryCodec binary = new SchemaBinaryCodec(LocalSchemaRegistry.DEFAULT);
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return data != null && SchemaBinaryCodec.isBinary(data) ? binary.decode(data) : json.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        return data != null && SchemaBinaryCodec.isBinary(data) ? binary.decode(data) : json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.serde;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Сериализатор значений для application.yaml: по умолчанию JSON ({@link TypeIdJsonSerializer}),
+ * для записей с заголовком {@link ValueFormat#HEADER} = BINARY - бинарный формат по схеме ({@link SchemaBinaryCodec}),
+ * если для типа значения есть схема.
+ */
+public class FormatSelectingSerializer implements Serializer<Object> {
+
+    private final TypeIdJsonSerializer json = new TypeIdJsonSerializer();
+    private final SchemaBinaryCodec binary = new SchemaBinaryCodec(LocalSchemaRegistry.DEFAULT);
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return json.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        ValueFormat format = ValueFormat.removeFrom(headers);
+        if (data != null && format == ValueFormat.BINARY && binary.canEncode(data.getClass())) {
+            return binary.encode(data);
+        }
+        return json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.serde;
+
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.dto.UnknownDto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.demo.serde.Schema.FieldType.STRING;
+import static com.example.demo.serde.Schema.field;
+
+/**
+ * Локальная замена schema registry: схемы регистрируются в памяти процесса, поэтому все работает без сети
+ * и в тестах. Продюсер и консьюмер должны видеть одни и те же схемы - здесь это гарантируется тем,
+ * что они описаны в коде в {@link #DEFAULT}.
+ */
+public class LocalSchemaRegistry {
+
+    public static final LocalSchemaRegistry DEFAULT = new LocalSchemaRegistry(List.of(
+            new Schema<>(1, KafkaMessageDto.class, KafkaMessageDto::new, List.of(
+                    field("value", STRING, KafkaMessageDto::getValue, (dto, value) -> dto.setValue((String) value)))),
+            new Schema<>(2, UnknownDto.class, UnknownDto::new, List.of(
+                    field("value", STRING, UnknownDto::getValue, (dto, value) -> dto.setValue((String) value))))));
+
+    private final Map<Integer, Schema<?>> byId = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Schema<?>> byType = new ConcurrentHashMap<>();
+
+    public LocalSchemaRegistry(List<Schema<?>> schemas) {
+        schemas.forEach(this::register);
+    }
+
+    public void register(Schema<?> schema) {
+        Schema<?> existing = byId.putIfAbsent(schema.id(), schema);
+        if (existing != null && existing != schema) {
+            throw new IllegalStateException("Схема с id " + schema.id() + " уже зарегистрирована для " + existing.type().getName());
+        }
+        byType.put(schema.type(), schema);
+    }
+
+    public Schema<?> getById(int id) {
+        return byId.get(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Schema<T> getByType(Class<T> type) {
+        return (Schema<T>) byType.get(type);
+    }
+}
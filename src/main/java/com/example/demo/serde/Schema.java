@@ -0,0 +1,28 @@
+package com.example.demo.serde;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Схема значения для {@link SchemaBinaryCodec}: упорядоченный список полей, как в Avro/Protobuf.
+ * Имена полей в бинарный формат не пишутся - только значения в порядке схемы, поэтому поля можно добавлять
+ * только в конец, а удалять - только заменой на новую схему с новым id.
+ *
+ * @param id      идентификатор схемы, пишется в каждую запись
+ * @param factory создает пустой объект для заполнения при чтении
+ */
+public record Schema<T>(int id, Class<T> type, Supplier<T> factory, List<Field<T>> fields) {
+
+    public enum FieldType {
+        STRING,
+        LONG
+    }
+
+    public record Field<T>(String name, FieldType type, Function<T, Object> getter, BiConsumer<T, Object> setter) {}
+
+    public static <T> Field<T> field(String name, FieldType type, Function<T, Object> getter, BiConsumer<T, Object> setter) {
+        return new Field<>(name, type, getter, setter);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.serde;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Бинарная кодировка значений по схеме из {@link LocalSchemaRegistry}:
+ * <pre>
+ * 0x00 | schema id (varint) | поля в порядке схемы
+ * STRING: длина + 1 (varint, 0 - null) | байты UTF-8
+ * LONG:   0 - null, 1 - есть значение | zigzag varint
+ * </pre>
+ * Нулевой первый байт отличает запись от JSON, который с него начинаться не может.
+ */
+public class SchemaBinaryCodec {
+
+    public static final byte MAGIC = 0;
+
+    private final LocalSchemaRegistry registry;
+
+    public SchemaBinaryCodec(LocalSchemaRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == MAGIC;
+    }
+
+    public boolean canEncode(Class<?> type) {
+        return registry.getByType(type) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> byte[] encode(T value) {
+        Schema<T> schema = registry.getByType((Class<T>) value.getClass());
+        if (schema == null) {
+            throw new SerializationException("Нет схемы для " + value.getClass().getName());
+        }
+        List<Schema.Field<T>> fields = schema.fields();
+        Object[] encoded = new Object[fields.size()];
+        int size = 1 + varintSize(schema.id());
+        for (int i = 0; i < fields.size(); i++) {
+            Schema.Field<T> field = fields.get(i);
+            Object fieldValue = field.getter().apply(value);
+            switch (field.type()) {
+                case STRING -> {
+                    byte[] bytes = fieldValue == null ? null : ((String) fieldValue).getBytes(StandardCharsets.UTF_8);
+                    encoded[i] = bytes;
+                    size += bytes == null ? 1 : varintSize(bytes.length + 1) + bytes.length;
+                }
+                case LONG -> {
+                    encoded[i] = fieldValue;
+                    size += fieldValue == null ? 1 : 1 + varintSize(zigzag((Long) fieldValue));
+                }
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(MAGIC);
+        writeVarint(buffer, schema.id());
+        for (int i = 0; i < fields.size(); i++) {
+            switch (fields.get(i).type()) {
+                case STRING -> {
+                    byte[] bytes = (byte[]) encoded[i];
+                    if (bytes == null) {
+                        writeVarint(buffer, 0);
+                    } else {
+                        writeVarint(buffer, bytes.length + 1);
+                        buffer.put(bytes);
+                    }
+                }
+                case LONG -> {
+                    if (encoded[i] == null) {
+                        buffer.put((byte) 0);
+                    } else {
+                        buffer.put((byte) 1);
+                        writeVarint(buffer, zigzag((Long) encoded[i]));
+                    }
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    public Object decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            if (buffer.get() != MAGIC) {
+                throw new SerializationException("Запись не в бинарном формате");
+            }
+            long schemaId = readVarint(buffer);
+            Schema<?> schema = schemaId > Integer.MAX_VALUE ? null : registry.getById((int) schemaId);
+            if (schema == null) {
+                throw new SerializationException("Неизвестная схема: " + schemaId);
+            }
+            return decode(schema, buffer);
+        } catch (BufferUnderflowException e) {
+            throw new SerializationException("Запись обрезана: " + data.length + " байт", e);
+        }
+    }
+
+    private static <T> T decode(Schema<T> schema, ByteBuffer buffer) {
+        T value = schema.factory().get();
+        for (Schema.Field<T> field : schema.fields()) {
+            switch (field.type()) {
+                case STRING -> {
+                    long length = readVarint(buffer) - 1;
+                    if (length > buffer.remaining()) {
+                        throw new BufferUnderflowException();
+                    }
+                    if (length >= 0) {
+                        String string = new String(buffer.array(), buffer.position(), (int) length, StandardCharsets.UTF_8);
+                        buffer.position(buffer.position() + (int) length);
+                        field.setter().accept(value, string);
+                    }
+                }
+                case LONG -> {
+                    if (buffer.get() != 0) {
+                        long zigzag = readVarint(buffer);
+                        field.setter().accept(value, (zigzag >>> 1) ^ -(zigzag & 1));
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 63) {
+                throw new SerializationException("Varint длиннее 10 байт");
+            }
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.serde;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Пара к {@link TypeIdJsonSerializer}: тип берется по короткому идентификатору из заголовка, ObjectReader
+ * для каждого типа создан заранее - без разбора имени класса и поиска типа на каждую запись.
+ * Записи без заголовка (записанные до перехода или сериализованные обычным JsonSerializer) читает {@link JsonDeserializer}.
+ */
+public class TypeIdJsonDeserializer implements Deserializer<Object> {
+
+    private final Map<TypeIds.TypeId, ObjectReader> readers = new HashMap<>();
+    private final JsonDeserializer<Object> fallback;
+
+    public TypeIdJsonDeserializer() {
+        this(JacksonUtils.enhancedObjectMapper());
+    }
+
+    public TypeIdJsonDeserializer(ObjectMapper objectMapper) {
+        TypeIds.all().forEach(typeId -> readers.put(typeId, objectMapper.readerFor(typeId.type())));
+        fallback = new JsonDeserializer<>(objectMapper);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        fallback.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return fallback.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        Header header = headers.lastHeader(TypeIds.HEADER);
+        if (header == null) {
+            return fallback.deserialize(topic, headers, data);
+        }
+        TypeIds.TypeId typeId = TypeIds.byBytes(header.value());
+        if (typeId == null) {
+            throw new SerializationException("Unknown type id [" + new String(header.value(), StandardCharsets.UTF_8) + "] for topic [" + topic + "]");
+        }
+        try {
+            return readers.get(typeId).readValue(data);
+        } catch (IOException e) {
+            throw new SerializationException("Can't deserialize data from topic [" + topic + "]", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        fallback.close();
+    }
+}
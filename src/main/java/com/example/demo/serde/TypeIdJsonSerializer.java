@@ -0,0 +1,70 @@
+package com.example.demo.serde;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON сериализатор с коротким идентификатором типа из {@link TypeIds} в заголовке вместо имени класса.
+ * ObjectWriter для каждого известного типа создается один раз. Значения неизвестных типов
+ * (например, строки из тестов) сериализуются обычным {@link JsonSerializer}.
+ */
+public class TypeIdJsonSerializer implements Serializer<Object> {
+
+    private final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+    private final Map<Class<?>, byte[]> ids = new HashMap<>();
+    private final JsonSerializer<Object> fallback;
+
+    public TypeIdJsonSerializer() {
+        this(JacksonUtils.enhancedObjectMapper());
+    }
+
+    public TypeIdJsonSerializer(ObjectMapper objectMapper) {
+        TypeIds.all().forEach(typeId -> {
+            writers.put(typeId.type(), objectMapper.writerFor(typeId.type()));
+            ids.put(typeId.type(), typeId.bytes());
+        });
+        fallback = new JsonSerializer<>(objectMapper);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        fallback.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return fallback.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data == null) {
+            return null;
+        }
+        ObjectWriter writer = writers.get(data.getClass());
+        if (writer == null) {
+            return fallback.serialize(topic, headers, data);
+        }
+        headers.remove(TypeIds.HEADER);
+        headers.add(TypeIds.HEADER, ids.get(data.getClass()));
+        try {
+            return writer.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Can't serialize data [" + data + "] for topic [" + topic + "]", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        fallback.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.serde;
+
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.dto.UnknownDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Общее для продюсера и консьюмера соответствие коротких идентификаторов типов и классов значений.
+ * Идентификатор пишется в заголовок {@link #HEADER} вместо полного имени класса в __TypeId__.
+ * Идентификаторы нельзя переиспользовать для других классов - в топиках остаются старые записи.
+ */
+public final class TypeIds {
+
+    public static final String HEADER = "__T";
+
+    public record TypeId(String id, byte[] bytes, Class<?> type) {}
+
+    private static final List<TypeId> TYPES = List.of(
+            typeId("msg", KafkaMessageDto.class),
+            typeId("unknown", UnknownDto.class));
+
+    private TypeIds() {
+    }
+
+    public static List<TypeId> all() {
+        return TYPES;
+    }
+
+    /**
+     * Типов единицы, поэтому линейный поиск по массиву байт заголовка - без создания строки на каждую запись.
+     */
+    public static TypeId byBytes(byte[] bytes) {
+        for (TypeId typeId : TYPES) {
+            if (Arrays.equals(typeId.bytes(), bytes)) {
+                return typeId;
+            }
+        }
+        return null;
+    }
+
+    private static TypeId typeId(String id, Class<?> type) {
+        return new TypeId(id, id.getBytes(StandardCharsets.UTF_8), type);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.serde;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Формат значения записи. Продюсер выбирает его заголовком {@link #HEADER}, который {@link FormatSelectingSerializer}
+ * снимает с записи - в топик он не попадает, консьюмер определяет формат по первому байту значения.
+ */
+public enum ValueFormat {
+
+    JSON,
+    BINARY;
+
+    public static final String HEADER = "__F";
+
+    private final byte[] headerValue = name().getBytes(StandardCharsets.UTF_8);
+
+    public void addTo(Headers headers) {
+        headers.remove(HEADER);
+        headers.add(HEADER, headerValue);
+    }
+
+    /**
+     * @return формат из заголовка (заголовок удаляется), по умолчанию JSON
+     */
+    public static ValueFormat removeFrom(Headers headers) {
+        Header header = headers.lastHeader(HEADER);
+        if (header == null) {
+            return JSON;
+        }
+        headers.remove(HEADER);
+        return Arrays.equals(BINARY.headerValue, header.value()) ? BINARY : JSON;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.state;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Входит в группу readiness (см. application.yaml): инстанс готов принимать трафик только после того,
+ * как все назначенные ему партиции вычитаны до end offset, зафиксированного при назначении.
+ */
+@Component
+@RequiredArgsConstructor
+public class BootstrapHealthIndicator implements HealthIndicator {
+
+    private final BootstrapTracker bootstrapTracker;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = bootstrapTracker.isCaughtUp() ? Health.up() : Health.outOfService();
+        return builder.withDetail("partitions", bootstrapTracker.getProgress()).build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.state;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Следит за первичным вычитыванием (bootstrap) партиций topic-1: при назначении партиции запоминает ее end offset
+ * и считает партицию догнавшей, когда листнер дошел до этого оффсета. Пока хотя бы одна партиция не догнала,
+ * состояние в {@link TopicStateStore} неполное и инстанс не должен получать трафик.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BootstrapTracker {
+
+    public record PartitionProgress(String topic, int partition, long endOffset, long position, boolean caughtUp) {
+
+        PartitionProgress advance(long nextOffset) {
+            long newPosition = Math.max(position, nextOffset);
+            return new PartitionProgress(topic, partition, endOffset, newPosition, newPosition >= endOffset);
+        }
+    }
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final TopicStateStore stateStore;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    String groupId;
+
+    private final Map<TopicPartition, PartitionProgress> progress = new ConcurrentHashMap<>();
+    private final AtomicBoolean isAssignedOnce = new AtomicBoolean();
+
+    /**
+     * @param startOffsets партиция -> оффсет, с которого начнется чтение (например, после восстановления из снапшота);
+     *                     для остальных партиций чтение начинается с начала лога
+     */
+    public void onAssigned(Collection<TopicPartition> partitions, Map<Integer, Long> startOffsets) {
+        isAssignedOnce.set(true);
+        if (partitions.isEmpty()) {
+            return;
+        }
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer()) {
+            Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            partitions.forEach(tp -> {
+                long endOffset = endOffsets.getOrDefault(tp, 0L);
+                long position = startOffsets.getOrDefault(tp.partition(), beginningOffsets.getOrDefault(tp, 0L));
+                progress.put(tp, new PartitionProgress(tp.topic(), tp.partition(), endOffset, position, position >= endOffset));
+            });
+        }
+        log.info("Начато вычитывание партиций: {}", getProgress());
+    }
+
+    public void onRevoked(Collection<TopicPartition> partitions) {
+        partitions.forEach(progress::remove);
+    }
+
+    /**
+     * @param nextOffset оффсет, до которого партиция применена без пропусков
+     */
+    public void onProgress(String topic, int partition, long nextOffset) {
+        TopicPartition tp = new TopicPartition(topic, partition);
+        PartitionProgress updated = progress.computeIfPresent(tp, (key, current) -> current.caughtUp() ? current : current.advance(nextOffset));
+        if (updated != null && updated.caughtUp() && updated.position() == nextOffset) {
+            log.info("Партиция {} вычитана до оффсета {}", tp, updated.endOffset());
+        }
+    }
+
+    /**
+     * Простой консьюмера - повод перепроверить позицию по самому консьюмеру: если последней записью в логе был маркер
+     * транзакции, листнер не получит записи с оффсетом end offset - 1, хотя позиция консьюмера уже дошла до конца.
+     * Партиция считается догнавшей, только если позиция дошла до end offset и все отданные на обработку записи
+     * применены. Событие публикуется в потоке консьюмера, поэтому к нему можно обращаться.
+     */
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        Consumer<?, ?> consumer = event.getConsumer();
+        //topic-1 читают и другие группы (например, индекс оффсетов) - их позиции к состоянию отношения не имеют
+        if (event.getTopicPartitions() == null || !groupId.equals(consumer.groupMetadata().groupId())) {
+            return;
+        }
+        event.getTopicPartitions().forEach(tp -> progress.computeIfPresent(tp, (key, current) -> {
+            if (current.caughtUp() || stateStore.hasInFlight(tp.partition())) {
+                return current;
+            }
+            PartitionProgress updated = current.advance(consumer.position(tp));
+            if (updated.caughtUp()) {
+                log.info("Партиция {} вычитана до оффсета {}", tp, updated.endOffset());
+            }
+            return updated;
+        }));
+    }
+
+    public boolean isCaughtUp() {
+        return isAssignedOnce.get() && progress.values().stream().allMatch(PartitionProgress::caughtUp);
+    }
+
+    public List<PartitionProgress> getProgress() {
+        return progress.values().stream()
+                .sorted(Comparator.comparing(PartitionProgress::topic).thenComparing(PartitionProgress::partition))
+                .toList();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.demo.state;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Хэш-таблица с открытой адресацией для строковых ключей, экономная по памяти. Ключи вида UUID
+ * (36 символов в нижнем регистре, как у {@link UUID#toString()}) хранятся двумя long'ами прямо в массивах
+ * таблицы, без объекта String и узла HashMap на каждый ключ (~24 байта на слот вместо ~120 байт на ключ).
+ * Остальные ключи хранятся массивом байт UTF-8.
+ * <p>
+ * Не потокобезопасна. Значения не могут быть null.
+ */
+public class CompactKeyMap<V> {
+
+    private static final double MAX_LOAD = 0.75;
+
+    // для UUID ключа - старшие и младшие 64 бита, для остального - хэш ключа в msb
+    private long[] msb;
+    private long[] lsb;
+    // null - UUID ключ
+    private byte[][] rawKeys;
+    // null - пустой слот
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public CompactKeyMap() {
+        this(16);
+    }
+
+    public CompactKeyMap(int expectedSize) {
+        allocate(tableSizeFor((int) Math.min(1 << 30, (long) Math.ceil(expectedSize / MAX_LOAD))));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(String key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(String key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        if (size + 1 > (mask + 1) * MAX_LOAD) {
+            resize();
+        }
+        long hi;
+        long lo;
+        byte[] raw = null;
+        if (isUuid(key)) {
+            hi = parseHex(key, 0, 8) << 32 | parseHex(key, 9, 13) << 16 | parseHex(key, 14, 18);
+            lo = parseHex(key, 19, 23) << 48 | parseHex(key, 24, 36);
+        } else {
+            raw = key.getBytes(StandardCharsets.UTF_8);
+            hi = stringHash(key);
+            lo = 0;
+        }
+        for (int slot = slot(hi, lo); ; slot = (slot + 1) & mask) {
+            if (values[slot] == null) {
+                msb[slot] = hi;
+                lsb[slot] = lo;
+                rawKeys[slot] = raw;
+                values[slot] = value;
+                size++;
+                return null;
+            }
+            if (msb[slot] == hi && lsb[slot] == lo && Arrays.equals(rawKeys[slot], raw)) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(String key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        // обратный сдвиг: переносим следующие элементы цепочки в освободившийся слот, что бы поиск не обрывался на дыре
+        int hole = slot;
+        for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = slot(msb[next], lsb[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                msb[hole] = msb[next];
+                lsb[hole] = lsb[next];
+                rawKeys[hole] = rawKeys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = null;
+        rawKeys[hole] = null;
+        size--;
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<String, V> action) {
+        for (int slot = 0; slot <= mask; slot++) {
+            if (values[slot] != null) {
+                action.accept(keyAt(slot), (V) values[slot]);
+            }
+        }
+    }
+
+    private int find(String key) {
+        if (isUuid(key)) {
+            long hi = parseHex(key, 0, 8) << 32 | parseHex(key, 9, 13) << 16 | parseHex(key, 14, 18);
+            long lo = parseHex(key, 19, 23) << 48 | parseHex(key, 24, 36);
+            for (int slot = slot(hi, lo); values[slot] != null; slot = (slot + 1) & mask) {
+                if (msb[slot] == hi && lsb[slot] == lo && rawKeys[slot] == null) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+        long hash = stringHash(key);
+        byte[] raw = null;
+        for (int slot = slot(hash, 0); values[slot] != null; slot = (slot + 1) & mask) {
+            if (msb[slot] == hash && lsb[slot] == 0 && rawKeys[slot] != null) {
+                if (raw == null) {
+                    raw = key.getBytes(StandardCharsets.UTF_8);
+                }
+                if (Arrays.equals(rawKeys[slot], raw)) {
+                    return slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private String keyAt(int slot) {
+        if (rawKeys[slot] != null) {
+            return new String(rawKeys[slot], StandardCharsets.UTF_8);
+        }
+        return new UUID(msb[slot], lsb[slot]).toString();
+    }
+
+    private int slot(long hi, long lo) {
+        long h = hi ^ Long.rotateLeft(lo, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void resize() {
+        long[] oldMsb = msb;
+        long[] oldLsb = lsb;
+        byte[][] oldRawKeys = rawKeys;
+        Object[] oldValues = values;
+        allocate((mask + 1) * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldMsb[i], oldLsb[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                msb[slot] = oldMsb[i];
+                lsb[slot] = oldLsb[i];
+                rawKeys[slot] = oldRawKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        msb = new long[capacity];
+        lsb = new long[capacity];
+        rawKeys = new byte[capacity][];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Math.max(16, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+    }
+
+    /**
+     * Только канонический вид в нижнем регистре - иначе ключ не восстановить из long'ов в исходном виде.
+     */
+    static boolean isUuid(String key) {
+        if (key.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = key.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String key, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = key.charAt(i);
+            value = value << 4 | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return value;
+    }
+
+    private static long stringHash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.state;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Чтение значения одного ключа без хранения всех значений в памяти: позиция последней записи ключа берется
+ * из {@link KeyOffsetIndex}, а сама запись читается отдельным консьюмером, который встает ровно на этот оффсет.
+ * Перед консьюмером небольшой LRU кэш; закэшированное значение действительно, пока индекс указывает на тот же оффсет.
+ * <p>
+ * Консьюмер не потокобезопасен, поэтому чтения из кафки идут по одному.
+ */
+@Component
+@ConditionalOnProperty(name = "state.index.enabled", havingValue = "true")
+@Slf4j
+public class IndexedLookup {
+
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(5);
+
+    public record Stats(long keys, long capacity, long fileBytes, int cached, long hits, long misses) {}
+
+    private record CachedValue(KeyOffsetIndex.Position position, Object value) {}
+
+    private final KeyOffsetIndex index;
+    private final Consumer<?, ?> consumer;
+    private final String topic;
+    private final Map<String, CachedValue> cache;
+
+    private long hits;
+    private long misses;
+
+    public IndexedLookup(KeyOffsetIndex index,
+                         ConsumerFactory<?, ?> consumerFactory,
+                         @Value("${state.index.topic}") String topic,
+                         @Value("${state.index.cache-size}") int cacheSize) {
+        this.index = index;
+        this.topic = topic;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedValue> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        Properties properties = new Properties();
+        // консьюмер только читает по assign/seek - оффсеты группы листнеров он трогать не должен
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1);
+        // старые записи исказили бы задержку от отправки до получения
+        properties.put(ConsumerConfig.INTERCEPTOR_CLASSES_CONFIG, "");
+        this.consumer = consumerFactory.createConsumer(null, "index-lookup", null, properties);
+    }
+
+    public synchronized Optional<Object> get(String key) {
+        KeyOffsetIndex.Position position = index.get(key);
+        if (position == null) {
+            return Optional.empty();
+        }
+        CachedValue cached = cache.get(key);
+        if (cached != null && cached.position().equals(position)) {
+            hits++;
+            return Optional.of(cached.value());
+        }
+        misses++;
+        Object value = fetch(key, position);
+        if (value != null) {
+            cache.put(key, new CachedValue(position, value));
+        }
+        return Optional.ofNullable(value);
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(index.size(), index.capacity(), index.fileBytes(), cache.size(), hits, misses);
+    }
+
+    private Object fetch(String key, KeyOffsetIndex.Position position) {
+        TopicPartition partition = new TopicPartition(topic, position.partition());
+        consumer.assign(List.of(partition));
+        consumer.seek(partition, position.offset());
+        long deadline = System.nanoTime() + FETCH_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            for (ConsumerRecord<?, ?> record : consumer.poll(Duration.ofMillis(100))) {
+                if (record.offset() == position.offset() && key.equals(record.key())) {
+                    return record.value();
+                }
+                // по оффсету другой ключ (коллизия хэшей в индексе) или индекс отстал от компакции
+                log.warn("По позиции {} ключа {} лежит запись с ключом {} и оффсетом {}", position, key, record.key(), record.offset());
+                return null;
+            }
+        }
+        log.warn("Не дождались записи ключа {} по позиции {}", key, position);
+        return null;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        consumer.close();
+    }
+}
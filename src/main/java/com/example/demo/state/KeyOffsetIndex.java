@@ -0,0 +1,347 @@
+package com.example.demo.state;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Персистентный индекс ключ -> (партиция, оффсет) последней записи ключа: хэш-таблица с открытой адресацией
+ * в memory-mapped файле. Значения в памяти не хранятся, а сам индекс живет в page cache, а не в куче,
+ * и переживает перезапуск.
+ * <p>
+ * Формат файла: заголовок {@link #HEADER_BYTES} байт (int magic, int version, long size, long used),
+ * затем capacity слотов по 16 байт: long хэш ключа (0 - пустой слот), long позиция (партиция << 48 | оффсет,
+ * -1 - ключ удален). Сам ключ не хранится: при коллизии 64-битных хэшей (~n²/2^65) читающий сверяет ключ
+ * найденной записи, см. {@link IndexedLookup}. Файл отображается окнами по {@link #SEGMENT_SLOTS} слотов,
+ * т.к. один MappedByteBuffer ограничен 2Гб.
+ */
+@Component
+@ConditionalOnProperty(name = "state.index.enabled", havingValue = "true")
+@Slf4j
+public class KeyOffsetIndex implements Closeable {
+
+    public record Position(int partition, long offset) {}
+
+    private static final int MAGIC = 0x4B4F4931;
+    private static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    static final int SLOT_BYTES = 16;
+    static final int SEGMENT_SHIFT = 22;
+    static final long SEGMENT_SLOTS = 1L << SEGMENT_SHIFT;
+    private static final double MAX_LOAD = 0.7;
+
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+
+    private final Path path;
+    private final boolean isCreated;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private long capacity;
+    private long size;
+    private long used;
+
+    public KeyOffsetIndex(@Value("${state.index.path}") Path path,
+                          @Value("${state.index.initial-capacity}") long initialCapacity) {
+        this.path = path;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            isCreated = !Files.exists(path);
+            if (isCreated) {
+                create(path, Long.highestOneBit(Math.max(16, initialCapacity - 1)) << 1);
+            }
+            map();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Индекс {} открыт: ключей {}, слотов {}", path, size, capacity);
+    }
+
+    /**
+     * @return индекс создан с нуля при этом запуске - его надо строить с начала топика
+     */
+    public boolean isCreated() {
+        return isCreated;
+    }
+
+    public void put(String key, int partition, long offset) {
+        long hash = hash(key);
+        long position = pack(partition, offset);
+        lock.writeLock().lock();
+        try {
+            if (used + 1 > capacity * MAX_LOAD) {
+                grow();
+            }
+            long mask = capacity - 1;
+            for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+                long slotHash = getHash(slot);
+                if (slotHash == EMPTY) {
+                    setPosition(slot, position);
+                    setHash(slot, hash);
+                    used++;
+                    size++;
+                    writeCounters();
+                    return;
+                }
+                if (slotHash == hash) {
+                    if (getPosition(slot) == DELETED) {
+                        size++;
+                        writeCounters();
+                    }
+                    setPosition(slot, position);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Слот удаленного ключа остается занятым, что бы не рвать цепочки поиска; освобождается при росте таблицы.
+     */
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            long slot = find(hash(key));
+            if (slot >= 0 && getPosition(slot) != DELETED) {
+                setPosition(slot, DELETED);
+                size--;
+                writeCounters();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Position get(String key) {
+        lock.readLock().lock();
+        try {
+            long slot = find(hash(key));
+            if (slot < 0) {
+                return null;
+            }
+            long position = getPosition(slot);
+            return position == DELETED ? null : new Position((int) (position >>> 48), position & 0xFFFF_FFFF_FFFFL);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long capacity() {
+        lock.readLock().lock();
+        try {
+            return capacity;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long fileBytes() {
+        return HEADER_BYTES + capacity() * SLOT_BYTES;
+    }
+
+    /**
+     * Страницы и так попадут на диск без нас (в т.ч. при падении JVM), force нужен только для гарантии при падении ОС.
+     */
+    public void force() {
+        lock.readLock().lock();
+        try {
+            header.force();
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null && channel.isOpen()) {
+                force();
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long find(long hash) {
+        long mask = capacity - 1;
+        for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long slotHash = getHash(slot);
+            if (slotHash == EMPTY) {
+                return -1;
+            }
+            if (slotHash == hash) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Перекладывает живые ключи в файл вдвое большего размера и атомарно подменяет им текущий.
+     */
+    private void grow() throws IOException {
+        long newCapacity = capacity * 2;
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        create(tmp, newCapacity);
+        long newSize = 0;
+        try (FileChannel tmpChannel = FileChannel.open(tmp, READ, WRITE)) {
+            MappedByteBuffer[] newSegments = mapSegments(tmpChannel, newCapacity);
+            long mask = newCapacity - 1;
+            for (long slot = 0; slot < capacity; slot++) {
+                long hash = getHash(slot);
+                long position = getPosition(slot);
+                if (hash == EMPTY || position == DELETED) {
+                    continue;
+                }
+                long target = hash & mask;
+                while (segment(newSegments, target).getLong(offset(target)) != EMPTY) {
+                    target = (target + 1) & mask;
+                }
+                segment(newSegments, target).putLong(offset(target), hash);
+                segment(newSegments, target).putLong(offset(target) + 8, position);
+                newSize++;
+            }
+            MappedByteBuffer newHeader = tmpChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            newHeader.putLong(8, newSize);
+            newHeader.putLong(16, newSize);
+            newHeader.force();
+            for (MappedByteBuffer segment : newSegments) {
+                segment.force();
+            }
+        }
+        channel.close();
+        Files.move(tmp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+        map();
+        log.info("Индекс {} увеличен до {} слотов", path, capacity);
+    }
+
+    private static void create(Path path, long capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE, TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.putInt(0, MAGIC);
+            header.putInt(4, FORMAT_VERSION);
+            header.putLong(8, 0);
+            header.putLong(16, 0);
+            header.force();
+            // файл разреженный: пустые слоты - нули, место на диске выделяется по мере записи
+            channel.write(ByteBuffer.wrap(new byte[1]), HEADER_BYTES + capacity * SLOT_BYTES - 1);
+        }
+    }
+
+    private void map() throws IOException {
+        channel = FileChannel.open(path, READ, WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Файл " + path + " не является индексом версии " + FORMAT_VERSION);
+        }
+        size = header.getLong(8);
+        used = header.getLong(16);
+        capacity = (channel.size() - HEADER_BYTES) / SLOT_BYTES;
+        segments = mapSegments(channel, capacity);
+    }
+
+    private static MappedByteBuffer[] mapSegments(FileChannel channel, long capacity) throws IOException {
+        int count = (int) ((capacity + SEGMENT_SLOTS - 1) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long slots = Math.min(SEGMENT_SLOTS, capacity - ((long) i << SEGMENT_SHIFT));
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + ((long) i << SEGMENT_SHIFT) * SLOT_BYTES, slots * SLOT_BYTES);
+        }
+        return segments;
+    }
+
+    private void writeCounters() {
+        header.putLong(8, size);
+        header.putLong(16, used);
+    }
+
+    private long getHash(long slot) {
+        return segment(segments, slot).getLong(offset(slot));
+    }
+
+    private void setHash(long slot, long hash) {
+        segment(segments, slot).putLong(offset(slot), hash);
+    }
+
+    private long getPosition(long slot) {
+        return segment(segments, slot).getLong(offset(slot) + 8);
+    }
+
+    private void setPosition(long slot, long position) {
+        segment(segments, slot).putLong(offset(slot) + 8, position);
+    }
+
+    private static MappedByteBuffer segment(MappedByteBuffer[] segments, long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & (SEGMENT_SLOTS - 1)) * SLOT_BYTES;
+    }
+
+    private static long pack(int partition, long offset) {
+        if (partition < 0 || partition > 0xFFFF || offset < 0 || offset > 0xFFFF_FFFF_FFFFL) {
+            throw new IllegalArgumentException("Позиция не помещается в индекс: " + partition + "/" + offset);
+        }
+        return ((long) partition << 48) | offset;
+    }
+
+    /**
+     * FNV-1a по символам и финальное перемешивание из MurmurHash3. 0 зарезервирован под пустой слот.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1 : h;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Последовательное чтение файла, записанного {@link MappedFileWriter}, теми же memory-mapped окнами.
+ */
+class MappedFileReader implements Closeable {
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer buffer;
+    private long windowStart;
+
+    MappedFileReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, READ);
+        this.size = channel.size();
+    }
+
+    /**
+     * Возвращает буфер, в котором доступно не меньше bytes байт.
+     */
+    MappedByteBuffer ensure(int bytes) throws IOException {
+        if (buffer == null || buffer.remaining() < bytes) {
+            long position = buffer == null ? windowStart : windowStart + buffer.position();
+            if (position + bytes > size) {
+                throw new IOException("Unexpected end of file at " + position);
+            }
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, Math.max(MappedFileWriter.WINDOW_SIZE, bytes)));
+        }
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+}
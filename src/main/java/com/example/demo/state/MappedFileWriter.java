@@ -0,0 +1,63 @@
+package com.example.demo.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Последовательная запись в файл через memory-mapped окна. Один MappedByteBuffer ограничен 2Гб,
+ * поэтому файл отображается кусками по {@link #WINDOW_SIZE}, а при закрытии обрезается до реально записанного.
+ */
+class MappedFileWriter implements Closeable {
+
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long windowStart;
+
+    MappedFileWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Возвращает буфер, в котором гарантированно есть место под bytes байт.
+     */
+    MappedByteBuffer ensure(int bytes) throws IOException {
+        if (buffer == null || buffer.remaining() < bytes) {
+            long position = position();
+            if (buffer != null) {
+                buffer.force();
+            }
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(WINDOW_SIZE, bytes));
+        }
+        return buffer;
+    }
+
+    long position() {
+        return buffer == null ? windowStart : windowStart + buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            long end = position();
+            if (buffer != null) {
+                buffer.force();
+                buffer = null;
+            }
+            channel.truncate(end);
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+}
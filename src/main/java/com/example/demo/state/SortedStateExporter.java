@@ -0,0 +1,293 @@
+package com.example.demo.state;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Выгрузка последнего значения каждого ключа топика в отсортированный по ключу файл из сжатых блоков
+ * (см. {@link SortedStateFileWriter}, читать - {@link SortedStateReader}) - для пакетных задач, которым иначе
+ * пришлось бы перечитывать топик своим консьюмером.
+ * <p>
+ * Партиции читаются параллельно отдельными консьюмерами от начала до конца на момент старта. Записи копятся в
+ * отсортированной карте, и при превышении {@code state.export.run-bytes} сбрасываются на диск отсортированным
+ * прогоном; затем все прогоны сливаются k-way слиянием. Так в памяти не больше одного прогона на поток чтения,
+ * сколько бы ни было ключей. Из нескольких значений ключа побеждает более позднее, удаленные ключи в файл не попадают.
+ * <p>
+ * Значения выгружаются байтами как есть, без заголовков записи.
+ */
+@Component
+@Slf4j
+public class SortedStateExporter {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final int TOMBSTONE = -1;
+
+    public record ExportResult(String topic, String path, int partitions, long records, int runs,
+                               long keys, int blocks, long rawBytes, long fileBytes, long durationMs) {}
+
+    /**
+     * Отсортированный прогон одной партиции; среди одинаковых ключей побеждает прогон с большим seq.
+     */
+    private record Run(Path path, long seq, long records) {}
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final Path exportDir;
+    private final int parallelism;
+    private final long runBytes;
+    private final int blockSize;
+    private final int compressionLevel;
+
+    public SortedStateExporter(ConsumerFactory<?, ?> consumerFactory,
+                               @Value("${state.export.path}") String exportPath,
+                               @Value("${state.export.parallelism}") int parallelism,
+                               @Value("${state.export.run-bytes}") long runBytes,
+                               @Value("${state.export.block-size}") int blockSize,
+                               @Value("${state.export.compression-level}") int compressionLevel) {
+        this.consumerFactory = consumerFactory;
+        this.exportDir = Path.of(exportPath);
+        this.parallelism = parallelism;
+        this.runBytes = runBytes;
+        this.blockSize = blockSize;
+        this.compressionLevel = compressionLevel;
+    }
+
+    public ExportResult export(String topic) throws IOException {
+        long before = System.nanoTime();
+        Files.createDirectories(exportDir);
+        Path target = exportDir.resolve(topic + ".sorted");
+        // у каждой выгрузки свой временный файл: одновременные выгрузки одного топика не пишут друг другу в файл,
+        // а итоговый подменяется атомарно - побеждает закончившая последней
+        Path tmp = Files.createTempFile(exportDir, topic + "-", ".sorted.tmp");
+        Path runDir = Files.createTempDirectory(exportDir, topic + "-runs-");
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("export-" + topic + "-"));
+        try {
+            List<TopicPartition> partitions = partitionsOf(topic);
+            List<CompletableFuture<List<Run>>> futures = partitions.stream()
+                    .map(partition -> CompletableFuture.supplyAsync(() -> readPartition(partition, runDir), executor))
+                    .toList();
+            List<Run> runs = futures.stream().flatMap(future -> future.join().stream()).toList();
+            long records = runs.stream().mapToLong(Run::records).sum();
+
+            SortedStateFileWriter writer = new SortedStateFileWriter(tmp, blockSize, compressionLevel);
+            try {
+                merge(runs, writer);
+            } finally {
+                writer.close();
+            }
+            Files.move(tmp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+            ExportResult result = new ExportResult(topic, target.toString(), partitions.size(), records, runs.size(),
+                                                   writer.getKeyCount(), writer.getBlockCount(), writer.getRawBytes(),
+                                                   Files.size(target), (System.nanoTime() - before) / 1_000_000);
+            log.info("Выгружено состояние топика {}: {}", topic, result);
+            return result;
+        } finally {
+            executor.shutdownNow();
+            Files.deleteIfExists(tmp);
+            try (Stream<Path> files = Files.list(runDir)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(runDir);
+        }
+    }
+
+    private List<TopicPartition> partitionsOf(String topic) {
+        try (Consumer<byte[], byte[]> consumer = createConsumer("export-meta")) {
+            List<PartitionInfo> infos = consumer.partitionsFor(topic);
+            if (infos == null || infos.isEmpty()) {
+                throw new IllegalArgumentException("Топик " + topic + " не найден");
+            }
+            return infos.stream().map(info -> new TopicPartition(topic, info.partition())).toList();
+        }
+    }
+
+    /**
+     * Читает партицию до оффсета конца на момент старта и режет ее на отсортированные прогоны.
+     */
+    private List<Run> readPartition(TopicPartition partition, Path runDir) {
+        List<Run> runs = new ArrayList<>();
+        TreeMap<byte[], byte[]> buffer = new TreeMap<>(Arrays::compareUnsigned);
+        long bufferedBytes = 0;
+        long bufferedRecords = 0;
+        try (Consumer<byte[], byte[]> consumer = createConsumer("export-" + partition.partition())) {
+            consumer.assign(List.of(partition));
+            consumer.seekToBeginning(List.of(partition));
+            long endOffset = consumer.endOffsets(List.of(partition)).get(partition);
+            while (consumer.position(partition) < endOffset) {
+                for (ConsumerRecord<byte[], byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                    if (record.offset() >= endOffset || record.key() == null) {
+                        continue;
+                    }
+                    buffer.put(record.key(), record.value());
+                    // перезапись ключа считается как новый - прогон сбрасывается чуть раньше, зато без лишних поисков
+                    bufferedBytes += record.key().length + length(record.value());
+                    bufferedRecords++;
+                    if (bufferedBytes >= runBytes) {
+                        runs.add(spill(buffer, bufferedRecords, runDir, partition, runs.size()));
+                        buffer.clear();
+                        bufferedBytes = 0;
+                        bufferedRecords = 0;
+                    }
+                }
+            }
+            if (!buffer.isEmpty()) {
+                runs.add(spill(buffer, bufferedRecords, runDir, partition, runs.size()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.debug("Партиция {} прочитана: {} прогонов", partition, runs.size());
+        return runs;
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    /**
+     * Формат прогона: [int keyLength, key, int valueLength (-1 для удаленного ключа), value]. Удаленные ключи
+     * пишутся, что бы при слиянии перекрыть значения из более ранних прогонов.
+     */
+    private static Run spill(TreeMap<byte[], byte[]> buffer, long records, Path runDir, TopicPartition partition, int index) throws IOException {
+        Path path = runDir.resolve(partition.partition() + "-" + index + ".run");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            for (Map.Entry<byte[], byte[]> entry : buffer.entrySet()) {
+                out.writeInt(entry.getKey().length);
+                out.write(entry.getKey());
+                if (entry.getValue() == null) {
+                    out.writeInt(TOMBSTONE);
+                } else {
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+            }
+        }
+        return new Run(path, ((long) partition.partition() << 32) | index, records);
+    }
+
+    /**
+     * k-way слияние прогонов: на каждый ключ из всех прогонов, где он есть, берется значение прогона с большим seq.
+     */
+    private static void merge(List<Run> runs, SortedStateFileWriter writer) throws IOException {
+        PriorityQueue<RunCursor> queue = new PriorityQueue<>(Math.max(1, runs.size()), Comparator
+                .comparing((RunCursor cursor) -> cursor.key, Arrays::compareUnsigned)
+                .thenComparing(cursor -> -cursor.seq));
+        try {
+            for (Run run : runs) {
+                RunCursor cursor = new RunCursor(run);
+                if (cursor.next()) {
+                    queue.add(cursor);
+                } else {
+                    cursor.close();
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunCursor winner = queue.poll();
+                byte[] key = winner.key;
+                byte[] value = winner.value;
+                advance(winner, queue);
+                while (!queue.isEmpty() && Arrays.equals(queue.peek().key, key)) {
+                    advance(queue.poll(), queue);
+                }
+                if (value != null) {
+                    writer.add(key, value);
+                }
+            }
+        } finally {
+            for (RunCursor cursor : queue) {
+                cursor.close();
+            }
+        }
+    }
+
+    private static void advance(RunCursor cursor, PriorityQueue<RunCursor> queue) throws IOException {
+        if (cursor.next()) {
+            queue.add(cursor);
+        } else {
+            cursor.close();
+        }
+    }
+
+    private Consumer<byte[], byte[]> createConsumer(String clientIdSuffix) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        // консьюмер только читает по assign/seek - оффсеты группы листнеров он трогать не должен
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        // старые записи исказили бы задержку от отправки до получения
+        properties.put(ConsumerConfig.INTERCEPTOR_CLASSES_CONFIG, "");
+        @SuppressWarnings("unchecked")
+        Consumer<byte[], byte[]> consumer = (Consumer<byte[], byte[]>) consumerFactory.createConsumer(null, "state-export", "-" + clientIdSuffix, properties);
+        return consumer;
+    }
+
+    private static class RunCursor implements Closeable {
+
+        private final DataInputStream in;
+        private final long seq;
+        private byte[] key;
+        private byte[] value;
+
+        RunCursor(Run run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.path()), 1 << 16));
+            this.seq = run.seq();
+        }
+
+        boolean next() throws IOException {
+            int keyLength;
+            try {
+                keyLength = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            key = in.readNBytes(keyLength);
+            int valueLength = in.readInt();
+            value = valueLength == TOMBSTONE ? null : in.readNBytes(valueLength);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Пишет отсортированные по ключу пары ключ-значение в файл из сжатых Deflater блоков с разреженным индексом:
+ * в индексе первый ключ и позиция каждого блока, поэтому для поиска ключа достаточно разжать один блок.
+ * <p>
+ * Формат файла (big-endian):
+ * <pre>
+ * int magic, int version,
+ * [int compressedLength, int rawLength, compressed] * blockCount,
+ * int blockCount, [int firstKeyLength, firstKey, long blockPosition] * blockCount,
+ * long indexPosition, long keyCount, int magic
+ * </pre>
+ * Внутри разжатого блока: [int keyLength, key, int valueLength, value]. Ключи должны приходить строго по возрастанию
+ * в порядке {@link Arrays#compareUnsigned(byte[], byte[])}.
+ */
+class SortedStateFileWriter implements Closeable {
+
+    static final int MAGIC = 0x4B535332;
+    static final int FORMAT_VERSION = 1;
+    static final int FOOTER_SIZE = 8 + 8 + 4;
+
+    private final MappedFileWriter writer;
+    private final int blockSize;
+    private final Deflater deflater;
+
+    private final List<byte[]> firstKeys = new ArrayList<>();
+    private final List<Long> blockPositions = new ArrayList<>();
+
+    private ByteBuffer block;
+    private byte[] compressed;
+    private byte[] blockFirstKey;
+    private byte[] lastKey;
+    private long keyCount;
+    private long rawBytes;
+
+    SortedStateFileWriter(Path path, int blockSize, int compressionLevel) throws IOException {
+        this.writer = new MappedFileWriter(path);
+        this.blockSize = blockSize;
+        this.deflater = new Deflater(compressionLevel);
+        this.block = ByteBuffer.allocate(blockSize);
+        this.compressed = new byte[blockSize];
+        writer.ensure(8).putInt(MAGIC).putInt(FORMAT_VERSION);
+    }
+
+    void add(byte[] key, byte[] value) throws IOException {
+        if (lastKey != null && Arrays.compareUnsigned(lastKey, key) >= 0) {
+            throw new IllegalArgumentException("Ключи должны идти по возрастанию");
+        }
+        int entrySize = 4 + key.length + 4 + value.length;
+        if (block.position() > 0 && block.position() + entrySize > blockSize) {
+            flushBlock();
+        }
+        if (block.remaining() < entrySize) {
+            // запись больше блока - блок под нее целиком
+            block = ByteBuffer.allocate(entrySize);
+        }
+        if (block.position() == 0) {
+            blockFirstKey = key;
+        }
+        block.putInt(key.length).put(key).putInt(value.length).put(value);
+        lastKey = key;
+        keyCount++;
+        rawBytes += entrySize;
+    }
+
+    long getKeyCount() {
+        return keyCount;
+    }
+
+    long getRawBytes() {
+        return rawBytes;
+    }
+
+    int getBlockCount() {
+        return firstKeys.size();
+    }
+
+    private void flushBlock() throws IOException {
+        int rawLength = block.position();
+        deflater.reset();
+        deflater.setInput(block.array(), 0, rawLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        firstKeys.add(blockFirstKey);
+        blockPositions.add(writer.position());
+        writer.ensure(8 + compressedLength).putInt(compressedLength).putInt(rawLength).put(compressed, 0, compressedLength);
+        if (block.capacity() != blockSize) {
+            block = ByteBuffer.allocate(blockSize);
+        } else {
+            block.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (block.position() > 0) {
+                flushBlock();
+            }
+            long indexPosition = writer.position();
+            writer.ensure(4).putInt(firstKeys.size());
+            for (int i = 0; i < firstKeys.size(); i++) {
+                byte[] firstKey = firstKeys.get(i);
+                writer.ensure(4 + firstKey.length + 8).putInt(firstKey.length).put(firstKey).putLong(blockPositions.get(i));
+            }
+            writer.ensure(FOOTER_SIZE).putLong(indexPosition).putLong(keyCount).putInt(MAGIC);
+        } finally {
+            deflater.end();
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.demo.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Чтение файла, записанного {@link SortedStateFileWriter}. Файл целиком отображается в память кусками по
+ * {@link #SEGMENT_SIZE}, блоки разжимаются прямо из отображения без копирования в кучу; блок на стыке кусков
+ * читается через канал. Разреженный индекс держится в памяти: поиск ключа - двоичный поиск блока и разбор одного блока.
+ * <p>
+ * Не потокобезопасен.
+ */
+public class SortedStateReader implements Closeable {
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+    private final Inflater inflater = new Inflater();
+
+    private final byte[][] firstKeys;
+    private final long[] blockPositions;
+    private final long keyCount;
+
+    private byte[] raw = new byte[0];
+
+    public SortedStateReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, READ);
+        this.size = channel.size();
+        if (size < 8 + SortedStateFileWriter.FOOTER_SIZE) {
+            channel.close();
+            throw new IOException("Файл " + path + " не является экспортом состояния");
+        }
+        this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+
+        ByteBuffer header = read(0, 8);
+        ByteBuffer footer = read(size - SortedStateFileWriter.FOOTER_SIZE, SortedStateFileWriter.FOOTER_SIZE);
+        long indexPosition = footer.getLong();
+        this.keyCount = footer.getLong();
+        if (header.getInt() != SortedStateFileWriter.MAGIC || header.getInt() != SortedStateFileWriter.FORMAT_VERSION
+                || footer.getInt() != SortedStateFileWriter.MAGIC) {
+            channel.close();
+            throw new IOException("Файл " + path + " не является экспортом состояния");
+        }
+
+        ByteBuffer index = read(indexPosition, (int) (size - SortedStateFileWriter.FOOTER_SIZE - indexPosition));
+        int blockCount = index.getInt();
+        this.firstKeys = new byte[blockCount][];
+        this.blockPositions = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            firstKeys[i] = new byte[index.getInt()];
+            index.get(firstKeys[i]);
+            blockPositions[i] = index.getLong();
+        }
+    }
+
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    public int getBlockCount() {
+        return blockPositions.length;
+    }
+
+    public long getFileBytes() {
+        return size;
+    }
+
+    /**
+     * Значение ключа: двоичный поиск по первым ключам блоков и разбор одного блока.
+     */
+    public Optional<byte[]> get(byte[] key) throws IOException {
+        int low = 0;
+        int high = firstKeys.length - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(firstKeys[middle], key) <= 0) {
+                candidate = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (candidate < 0) {
+            return Optional.empty();
+        }
+        ByteBuffer block = inflate(candidate);
+        while (block.hasRemaining()) {
+            byte[] entryKey = new byte[block.getInt()];
+            block.get(entryKey);
+            int valueLength = block.getInt();
+            int compare = Arrays.compareUnsigned(entryKey, key);
+            if (compare == 0) {
+                byte[] value = new byte[valueLength];
+                block.get(value);
+                return Optional.of(value);
+            }
+            if (compare > 0) {
+                break;
+            }
+            block.position(block.position() + valueLength);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Все пары ключ-значение по возрастанию ключа.
+     */
+    public void forEach(BiConsumer<byte[], byte[]> consumer) throws IOException {
+        for (int i = 0; i < blockPositions.length; i++) {
+            ByteBuffer block = inflate(i);
+            while (block.hasRemaining()) {
+                byte[] key = new byte[block.getInt()];
+                block.get(key);
+                byte[] value = new byte[block.getInt()];
+                block.get(value);
+                consumer.accept(key, value);
+            }
+        }
+    }
+
+    private ByteBuffer inflate(int blockIndex) throws IOException {
+        ByteBuffer lengths = read(blockPositions[blockIndex], 8);
+        int compressedLength = lengths.getInt();
+        int rawLength = lengths.getInt();
+        if (raw.length < rawLength) {
+            raw = new byte[rawLength];
+        }
+        inflater.reset();
+        inflater.setInput(read(blockPositions[blockIndex] + 8, compressedLength));
+        try {
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int count = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (count == 0 && inflater.needsInput()) {
+                    throw new IOException("Блок " + blockIndex + " поврежден");
+                }
+                inflated += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Блок " + blockIndex + " поврежден", e);
+        }
+        return ByteBuffer.wrap(raw, 0, rawLength);
+    }
+
+    /**
+     * Участок файла: срез отображения, если он целиком в одном куске, иначе копия через канал.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        int segment = (int) (position / SEGMENT_SIZE);
+        int offset = (int) (position % SEGMENT_SIZE);
+        if (offset + (long) length <= segments[segment].capacity()) {
+            return segments[segment].slice(offset, length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла на позиции " + position);
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.demo.state;
+
+import com.example.demo.dto.KafkaMessageDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Периодически сохраняет {@link TopicStateStore} вместе с оффсетами партиций на диск, что бы при старте
+ * не перечитывать весь топик, а восстановить состояние из снапшота и дочитать только хвост.
+ * <p>
+ * Снапшот годится, только пока лог еще хранит все, что произошло после него. Если снапшот старше
+ * {@code delete.retention.ms} топика, компакция могла уже удалить tombstone'ы ключей, удаленных после снапшота, -
+ * такие ключи вернулись бы из снапшота и больше никогда не удалились. То же, если оффсет из снапшота меньше
+ * начала лога партиции. В обоих случаях снапшот отбрасывается и топик перечитывается с начала.
+ * <p>
+ * Формат файла (big-endian):
+ * <pre>
+ * int magic, int version, long takenAtMillis, int partitionCount, [int partition, long nextOffset] * partitionCount,
+ * int entryCount, [int partition, long offset, int keyLength, key, int valueLength (-1 для null), value] * entryCount
+ * </pre>
+ * Строки в UTF-8. Запись идет во временный файл, который потом атомарно подменяет предыдущий снапшот.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StateSnapshotter {
+
+    private static final int MAGIC = 0x4B535331;
+    private static final int FORMAT_VERSION = 2;
+
+    private final TopicStateStore stateStore;
+    private final ConsumerFactory<?, ?> consumerFactory;
+
+    @Value("${state.snapshot.enabled}")
+    Boolean isSnapshotEnabled;
+
+    @Value("${state.snapshot.path}")
+    String snapshotPath;
+
+    private long lastSnapshotVersion = -1;
+
+    @Scheduled(fixedDelayString = "${state.snapshot.interval-ms}", initialDelayString = "${state.snapshot.interval-ms}")
+    public void scheduledSnapshot() {
+        if (!isSnapshotEnabled) {
+            return;
+        }
+        long version = stateStore.getVersion();
+        if (version == lastSnapshotVersion) {
+            return;
+        }
+        try {
+            write(stateStore.snapshot());
+            lastSnapshotVersion = version;
+        } catch (IOException e) {
+            log.error("Не удалось сохранить снапшот состояния в {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Восстанавливает из снапшота состояние переданных партиций.
+     *
+     * @return партиция -> оффсет, с которого надо продолжить чтение; партиций, которых нет в снапшоте
+     * или для которых он устарел, в ответе нет
+     */
+    public Map<Integer, Long> restore(Collection<TopicPartition> partitions) {
+        if (!isSnapshotEnabled || partitions.isEmpty()) {
+            return Map.of();
+        }
+        Optional<TopicStateStore.Snapshot> loaded = load();
+        if (loaded.isEmpty()) {
+            return Map.of();
+        }
+        TopicStateStore.Snapshot snapshot = loaded.get();
+        Map<Integer, Long> checkpoints = new HashMap<>();
+        Map<String, Boolean> isFreshByTopic = new HashMap<>();
+        Map<TopicPartition, Long> logStartOffsets = logStartOffsets(partitions);
+        partitions.forEach(tp -> {
+            Long nextOffset = snapshot.nextOffsets().get(tp.partition());
+            if (nextOffset == null || !isFreshByTopic.computeIfAbsent(tp.topic(), topic -> isFresh(topic, snapshot.takenAt()))) {
+                return;
+            }
+            Long logStartOffset = logStartOffsets.get(tp);
+            if (logStartOffset == null || nextOffset < logStartOffset) {
+                log.warn("Оффсет {} из снапшота для {} меньше начала лога {}, партиция будет перечитана с начала",
+                         nextOffset, tp, logStartOffset);
+                return;
+            }
+            Map<String, TopicStateStore.Entry> partitionEntries = new HashMap<>();
+            snapshot.entries().forEach((key, entry) -> {
+                if (entry.partition() == tp.partition()) {
+                    partitionEntries.put(key, entry);
+                }
+            });
+            stateStore.restorePartition(tp.partition(), partitionEntries, nextOffset);
+            checkpoints.put(tp.partition(), nextOffset);
+        });
+        return checkpoints;
+    }
+
+    private boolean isFresh(String topic, Instant takenAt) {
+        Optional<Duration> deleteRetention = deleteRetention(topic);
+        if (deleteRetention.isEmpty()) {
+            return false;
+        }
+        Duration age = Duration.between(takenAt, Instant.now());
+        if (age.compareTo(deleteRetention.get()) >= 0) {
+            log.warn("Снапшот {} снят {} назад, это не меньше delete.retention.ms топика {} ({}): tombstone'ы могли быть "
+                     + "уже удалены компакцией, топик будет перечитан с начала", snapshotPath, age, topic, deleteRetention.get());
+            return false;
+        }
+        return true;
+    }
+
+    private Optional<Duration> deleteRetention(String topic) {
+        Object bootstrapServers = consumerFactory.getConfigurationProperties().get(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG);
+        ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, topic);
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers))) {
+            Config config = admin.describeConfigs(List.of(resource)).all().get().get(resource);
+            return Optional.of(Duration.ofMillis(Long.parseLong(config.get(TopicConfig.DELETE_RETENTION_MS_CONFIG).value())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            log.warn("Не удалось получить delete.retention.ms топика {}, снапшот не используется: {}", topic, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    private Map<TopicPartition, Long> logStartOffsets(Collection<TopicPartition> partitions) {
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer()) {
+            return consumer.beginningOffsets(partitions);
+        }
+    }
+
+    public void write(TopicStateStore.Snapshot snapshot) throws IOException {
+        long before = System.nanoTime();
+        Path target = Path.of(snapshotPath);
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = parent.resolve(target.getFileName() + ".tmp");
+
+        try (MappedFileWriter writer = new MappedFileWriter(tmp)) {
+            Map<Integer, Long> offsets = snapshot.nextOffsets();
+            ByteBuffer header = writer.ensure(20 + offsets.size() * 12 + 4);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(snapshot.takenAt().toEpochMilli()).putInt(offsets.size());
+            offsets.forEach((partition, offset) -> header.putInt(partition).putLong(offset));
+            header.putInt(snapshot.entries().size());
+
+            for (Map.Entry<String, TopicStateStore.Entry> entry : snapshot.entries().entrySet()) {
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                String value = entry.getValue().value().getValue();
+                byte[] valueBytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+                int valueLength = valueBytes == null ? 0 : valueBytes.length;
+
+                ByteBuffer buffer = writer.ensure(4 + 8 + 4 + key.length + 4 + valueLength);
+                buffer.putInt(entry.getValue().partition())
+                        .putLong(entry.getValue().offset())
+                        .putInt(key.length)
+                        .put(key);
+                if (valueBytes == null) {
+                    buffer.putInt(-1);
+                } else {
+                    buffer.putInt(valueBytes.length).put(valueBytes);
+                }
+            }
+        }
+        Files.move(tmp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+        log.info("Сохранен снапшот состояния: {} ключей, {} партиций, {} мс",
+                 snapshot.entries().size(), snapshot.nextOffsets().size(), (System.nanoTime() - before) / 1_000_000);
+    }
+
+    public Optional<TopicStateStore.Snapshot> load() {
+        Path path = Path.of(snapshotPath);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (MappedFileReader reader = new MappedFileReader(path)) {
+            ByteBuffer header = reader.ensure(8);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                log.warn("Файл {} не является снапшотом состояния этой версии, будет полное перечитывание топика", path);
+                return Optional.empty();
+            }
+            ByteBuffer timeAndCount = reader.ensure(12);
+            Instant takenAt = Instant.ofEpochMilli(timeAndCount.getLong());
+            int partitionCount = timeAndCount.getInt();
+            Map<Integer, Long> offsets = new HashMap<>();
+            ByteBuffer offsetsBuffer = reader.ensure(partitionCount * 12 + 4);
+            for (int i = 0; i < partitionCount; i++) {
+                offsets.put(offsetsBuffer.getInt(), offsetsBuffer.getLong());
+            }
+            int entryCount = offsetsBuffer.getInt();
+
+            Map<String, TopicStateStore.Entry> entries = new HashMap<>(entryCount * 4 / 3 + 1);
+            for (int i = 0; i < entryCount; i++) {
+                ByteBuffer buffer = reader.ensure(16);
+                int partition = buffer.getInt();
+                long offset = buffer.getLong();
+                String key = readString(reader, buffer.getInt());
+                String value = readString(reader, reader.ensure(4).getInt());
+                entries.put(key, new TopicStateStore.Entry(new KafkaMessageDto(value), partition, offset));
+            }
+            return Optional.of(new TopicStateStore.Snapshot(takenAt, offsets, entries));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось прочитать снапшот {}, будет полное перечитывание топика: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static String readString(MappedFileReader reader, int length) throws IOException {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        reader.ensure(length).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
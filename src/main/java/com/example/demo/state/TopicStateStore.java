@@ -0,0 +1,176 @@
+package com.example.demo.state;
+
+import com.example.demo.dto.KafkaMessageDto;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Материализованное состояние compacted топика topic-1: последнее значение по каждому ключу.
+ * Наполняется из {@link com.example.demo.kafka.ListenerOne}, tombstone (null значение) удаляет ключ.
+ * Помимо значений хранит по каждой партиции оффсет, с которого надо продолжить чтение - для снапшотов.
+ */
+@Component
+public class TopicStateStore {
+
+    public record Entry(KafkaMessageDto value, int partition, long offset) {}
+
+    /**
+     * @param takenAt     когда снят снапшот
+     * @param nextOffsets партиция -> оффсет следующей невычитанной записи
+     */
+    public record Snapshot(Instant takenAt, Map<Integer, Long> nextOffsets, Map<String, Entry> entries) {}
+
+    /**
+     * Вызывается в потоке листнера на каждое изменение ключа, поэтому не должен блокироваться.
+     * Очистка и восстановление партиций изменениями не считаются.
+     */
+    public interface ChangeListener {
+
+        /**
+         * @param value новое значение, null - ключ удален
+         */
+        void onChange(String key, KafkaMessageDto value);
+    }
+
+    /**
+     * Записи партиции, отданные на применение не по порядку оффсетов и еще не примененные, и оффсет после
+     * наибольшей примененной. Чекпоинт партиции не уходит дальше первой незавершенной записи.
+     */
+    private static class InFlight {
+
+        private final NavigableSet<Long> offsets = new TreeSet<>();
+        private long highestNextOffset;
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> nextOffsets = new ConcurrentHashMap<>();
+    private final Map<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void put(String key, KafkaMessageDto value, int partition, long offset) {
+        entries.put(key, new Entry(value, partition, offset));
+        advance(partition, offset);
+        changeListeners.forEach(listener -> listener.onChange(key, value));
+    }
+
+    public void remove(String key, int partition, long offset) {
+        entries.remove(key);
+        advance(partition, offset);
+        changeListeners.forEach(listener -> listener.onChange(key, null));
+    }
+
+    /**
+     * Запись будет применена не по порядку оффсетов (см. {@link com.example.demo.kafka.ListenerOneKeyOrdered}):
+     * пока она не завершена через put, remove или {@link #complete}, чекпоинт партиции не пройдет дальше нее.
+     * Вызывается в порядке оффсетов, до передачи записи на применение.
+     */
+    public void begin(int partition, long offset) {
+        InFlight partitionInFlight = inFlight.computeIfAbsent(partition, p -> new InFlight());
+        synchronized (partitionInFlight) {
+            partitionInFlight.offsets.add(offset);
+        }
+    }
+
+    /**
+     * Запись обработана без изменения состояния (неизвестный тип, ошибка) - чекпоинт может пройти дальше нее.
+     */
+    public void complete(int partition, long offset) {
+        advance(partition, offset);
+    }
+
+    /**
+     * @return есть ли по партиции записи, начатые через {@link #begin}, но еще не примененные
+     */
+    public boolean hasInFlight(int partition) {
+        InFlight partitionInFlight = inFlight.get(partition);
+        if (partitionInFlight == null) {
+            return false;
+        }
+        synchronized (partitionInFlight) {
+            return !partitionInFlight.offsets.isEmpty();
+        }
+    }
+
+    public Optional<KafkaMessageDto> get(String key) {
+        return Optional.ofNullable(entries.get(key)).map(Entry::value);
+    }
+
+    /**
+     * Оффсет, с которого продолжать чтение партиции, если ее состояние есть в памяти.
+     */
+    public Optional<Long> nextOffset(int partition) {
+        return Optional.ofNullable(nextOffsets.get(partition));
+    }
+
+    public int count() {
+        return entries.size();
+    }
+
+    /**
+     * Счетчик изменений, позволяет не писать снапшот, если с прошлого раза ничего не поменялось.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Перед повторным вычитыванием партиции с начала ее ключи надо убрать - иначе ключ, tombstone которого
+     * уже вычищен компакцией, так и останется в состоянии.
+     */
+    public synchronized void clearPartition(int partition) {
+        nextOffsets.remove(partition);
+        inFlight.remove(partition);
+        entries.values().removeIf(entry -> entry.partition() == partition);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Заменяет состояние партиции восстановленным из снапшота, дальше чтение продолжается с nextOffset.
+     */
+    public synchronized void restorePartition(int partition, Map<String, Entry> partitionEntries, long nextOffset) {
+        clearPartition(partition);
+        entries.putAll(partitionEntries);
+        nextOffsets.put(partition, nextOffset);
+    }
+
+    /**
+     * Оффсеты копируются раньше значений: значения в снапшоте могут оказаться новее оффсетов, но не наоборот,
+     * а повторное применение тех же записей после восстановления ничего не портит.
+     */
+    public synchronized Snapshot snapshot() {
+        Map<Integer, Long> offsets = new HashMap<>(nextOffsets);
+        Map<String, Entry> copy = new HashMap<>(entries);
+        return new Snapshot(Instant.now(), offsets, copy);
+    }
+
+    private void advance(int partition, long offset) {
+        InFlight partitionInFlight = inFlight.get(partition);
+        if (partitionInFlight == null) {
+            nextOffsets.merge(partition, offset + 1, Math::max);
+        } else {
+            synchronized (partitionInFlight) {
+                partitionInFlight.offsets.remove(offset);
+                partitionInFlight.highestNextOffset = Math.max(partitionInFlight.highestNextOffset, offset + 1);
+                nextOffsets.put(partition, partitionInFlight.offsets.isEmpty()
+                        ? partitionInFlight.highestNextOffset
+                        : partitionInFlight.offsets.first());
+            }
+        }
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.demo.state;
+
+import com.example.demo.dto.KafkaMessageDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+import org.springframework.kafka.support.KafkaNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Общая для всех режимов листнера topic-1 логика: применение записей к {@link TopicStateStore},
+ * восстановление из снапшота и отслеживание первичного вычитывания при назначении партиций.
+ * <p>
+ * Состояние отозванной партиции держится еще {@code state.rebalance.revoked-retention-ms}: если за это время
+ * партиция вернется (eager ребаланс отзывает и заново назначает все партиции) или перейдет к другому консьюмеру
+ * этого же экземпляра, чтение продолжится с места, а не с начала. Иначе ее ключи удаляются из состояния.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TopicStateUpdater {
+
+    private final TopicStateStore stateStore;
+    private final StateSnapshotter snapshotter;
+    private final BootstrapTracker bootstrapTracker;
+
+    @Value("${is-reset-kafka-read-offset-on-startup}")
+    Boolean isNeedResetKafkaReadOffset;
+
+    @Value("${state.rebalance.revoked-retention-ms}")
+    long revokedRetentionMs;
+
+    //партиция -> когда отозвана, System.nanoTime()
+    private final Map<Integer, Long> revokedAt = new ConcurrentHashMap<>();
+
+    public void put(String topicName, int partition, long offset, String key, KafkaMessageDto dto) {
+        stateStore.put(key, dto, partition, offset);
+        onApplied(topicName, partition, offset);
+        log.debug(format("Из топика '%s' вычитали сообщение с ключом %s и содержимым %s", topicName, key, dto.getValue()));
+    }
+
+    //Tombstone - запись с null значением, для compacted топика означает удаление ключа
+    public void remove(String topicName, int partition, long offset, String key) {
+        stateStore.remove(key, partition, offset);
+        onApplied(topicName, partition, offset);
+        log.debug(format("Из топика '%s' вычитали tombstone для ключа %s", topicName, key));
+    }
+
+    public void skip(String topicName, int partition, long offset, Object value) {
+        log.error("Пришло неизвестное сообщение: {}", value);
+        release(topicName, partition, offset);
+    }
+
+    /**
+     * Запись будет применена не по порядку оффсетов, см. {@link TopicStateStore#begin}.
+     */
+    public void begin(int partition, long offset) {
+        stateStore.begin(partition, offset);
+    }
+
+    /**
+     * Запись начата через {@link #begin}, но не применена из-за ошибки - не держим из-за нее чекпоинт партиции.
+     */
+    public void release(String topicName, int partition, long offset) {
+        stateStore.complete(partition, offset);
+        onApplied(topicName, partition, offset);
+    }
+
+    //при обработке не по порядку продвигаться можно только до первой незавершенной записи, а не до самой дальней
+    private void onApplied(String topicName, int partition, long offset) {
+        bootstrapTracker.onProgress(topicName, partition, stateStore.nextOffset(partition).orElse(offset + 1));
+    }
+
+    /**
+     * Применяет запись произвольного типа - для листнеров, которые сами не диспетчеризуют по типу payload.
+     */
+    public void apply(String topicName, int partition, long offset, String key, Object value) {
+        if (value == null || value instanceof KafkaNull) {
+            remove(topicName, partition, offset, key);
+        } else if (value instanceof KafkaMessageDto dto) {
+            put(topicName, partition, offset, key, dto);
+        } else {
+            skip(topicName, partition, offset, value);
+        }
+    }
+
+    //Необходимо для откатывания оффсета в топике каждый раз при подключении, что б не заполнять очередь заново.
+    //Если состояние партиции еще в памяти - продолжаем с него, иначе если есть снапшот состояния - восстанавливаемся
+    //из него и дочитываем только хвост после сохраненного оффсета.
+    //С CooperativeStickyAssignor сюда приходят только вновь назначенные партиции, оставшиеся за консьюмером не трогаем
+    public synchronized void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        assignments.keySet().forEach(t -> revokedAt.remove(t.partition()));
+        if (!isNeedResetKafkaReadOffset) {
+            //без сброса читаем с текущих (закоммиченных) оффсетов
+            Map<Integer, Long> positions = assignments.entrySet().stream()
+                    .collect(Collectors.toMap(e -> e.getKey().partition(), Map.Entry::getValue));
+            bootstrapTracker.onAssigned(assignments.keySet(), positions);
+        } else {
+            Set<Integer> partitions = assignments.keySet().stream()
+                    .map(TopicPartition::partition)
+                    .collect(Collectors.toSet());
+            Map<Integer, Long> checkpoints = new HashMap<>();
+            partitions.forEach(partition -> stateStore.nextOffset(partition).ifPresent(offset -> checkpoints.put(partition, offset)));
+            if (!checkpoints.isEmpty()) {
+                log.info("Состояние партиций {} уже в памяти, продолжаем чтение с {}", checkpoints.keySet(), checkpoints);
+            }
+            Set<TopicPartition> toRestore = assignments.keySet().stream()
+                    .filter(t -> !checkpoints.containsKey(t.partition()))
+                    .collect(Collectors.toSet());
+            checkpoints.putAll(snapshotter.restore(toRestore));
+            bootstrapTracker.onAssigned(assignments.keySet(), checkpoints);
+
+            assignments.forEach((t, o) -> {
+                Long checkpoint = checkpoints.get(t.partition());
+                if (checkpoint != null) {
+                    callback.seek(t.topic(), t.partition(), checkpoint);
+                } else {
+                    stateStore.clearPartition(t.partition());
+                    callback.seekToBeginning(t.topic(), t.partition());
+                }
+            });
+        }
+    }
+
+    public synchronized void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        long now = System.nanoTime();
+        partitions.forEach(t -> revokedAt.put(t.partition(), now));
+        bootstrapTracker.onRevoked(partitions);
+    }
+
+    @Scheduled(fixedDelayString = "${state.rebalance.revoked-retention-ms}")
+    public synchronized void dropRevoked() {
+        long deadline = System.nanoTime() - revokedRetentionMs * 1_000_000;
+        revokedAt.entrySet().removeIf(entry -> {
+            if (entry.getValue() - deadline > 0) {
+                return false;
+            }
+            stateStore.clearPartition(entry.getKey());
+            log.info("Партиция {} отозвана и не вернулась, ее ключи удалены из состояния", entry.getKey());
+            return true;
+        });
+    }
+}
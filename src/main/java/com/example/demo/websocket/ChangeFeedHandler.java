@@ -0,0 +1,204 @@
+package com.example.demo.websocket;
+
+import com.example.demo.dto.ChangeDto;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.dto.SubscriptionDto;
+import com.example.demo.state.TopicStateStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Подписка на изменения ключей topic-1: клиент присылает {"keys": [...], "prefixes": [...]} (каждое новое сообщение
+ * заменяет подписку) и получает {"key", "value", "deleted"} на каждое изменение подходящего ключа. Для явно
+ * перечисленных ключей сразу после подписки приходят текущие значения.
+ * <p>
+ * Подписчики найдены по индексам ключ -> сессии и префикс -> сессии, поэтому цена изменения зависит от длины ключа,
+ * а не от числа подписчиков. Медленному клиенту по каждому ключу уходит только последнее значение
+ * (см. {@link ConflatingSession}).
+ * <p>
+ * Начальное значение ключа читается и отправляется под тем же замком, под которым рассылаются изменения этого ключа:
+ * иначе изменение, пришедшее между чтением и отправкой, было бы перезаписано более старым значением.
+ */
+@Component
+@Slf4j
+public class ChangeFeedHandler extends TextWebSocketHandler implements TopicStateStore.ChangeListener {
+
+    private record Subscriber(ConflatingSession<String> session, SubscriptionDto subscription) {}
+
+    private final TopicStateStore stateStore;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService webSocketSendExecutor;
+    private final Duration sendTimeout;
+    private final int maxPendingKeys;
+
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Set<ConflatingSession<String>>> byKey = new ConcurrentHashMap<>();
+    private final Map<String, Set<ConflatingSession<String>>> byPrefix = new ConcurrentHashMap<>();
+    private final Object[] keyLocks = new Object[64];
+
+    public ChangeFeedHandler(TopicStateStore stateStore,
+                             ObjectMapper objectMapper,
+                             ExecutorService webSocketSendExecutor,
+                             @Value("${websocket.send-timeout-ms}") long sendTimeoutMs,
+                             @Value("${websocket.changes.max-pending-keys}") int maxPendingKeys) {
+        this.stateStore = stateStore;
+        this.objectMapper = objectMapper;
+        this.webSocketSendExecutor = webSocketSendExecutor;
+        this.sendTimeout = Duration.ofMillis(sendTimeoutMs);
+        this.maxPendingKeys = maxPendingKeys;
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        stateStore.addChangeListener(this);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        SubscriptionDto subscription;
+        try {
+            subscription = objectMapper.readValue(message.getPayload(), SubscriptionDto.class);
+        } catch (JsonProcessingException e) {
+            session.close(CloseStatus.BAD_DATA.withReason("Ожидается {\"keys\": [...], \"prefixes\": [...]}"));
+            return;
+        }
+        Subscriber previous = subscribers.get(session.getId());
+        ConflatingSession<String> conflatingSession = previous != null
+                ? previous.session()
+                : new ConflatingSession<>(session, webSocketSendExecutor, sendTimeout, maxPendingKeys);
+        Subscriber subscriber = new Subscriber(conflatingSession, subscription);
+        subscribers.put(session.getId(), subscriber);
+        //сначала новая подписка, потом снимаем только то, чего в ней нет - иначе изменения ключей, которые есть
+        //в обеих подписках, в промежутке терялись бы
+        index(subscriber);
+        if (previous != null) {
+            unindex(conflatingSession,
+                    keys(previous.subscription()).stream().filter(key -> !keys(subscription).contains(key)).toList(),
+                    prefixes(previous.subscription()).stream().filter(prefix -> !prefixes(subscription).contains(prefix)).toList());
+        }
+
+        for (String key : keys(subscription)) {
+            synchronized (lockOf(key)) {
+                Optional<KafkaMessageDto> value = stateStore.get(key);
+                if (value.isPresent()) {
+                    conflatingSession.offer(key, toMessage(key, value.get()));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Subscriber removed = subscribers.remove(session.getId());
+        if (removed != null) {
+            unindex(removed.session(), keys(removed.subscription()), prefixes(removed.subscription()));
+        }
+    }
+
+    @Override
+    public void onChange(String key, KafkaMessageDto value) {
+        synchronized (lockOf(key)) {
+            dispatch(key, value);
+        }
+    }
+
+    private void dispatch(String key, KafkaMessageDto value) {
+        TextMessage message = null;
+        Set<ConflatingSession<String>> keySessions = byKey.get(key);
+        if (keySessions != null) {
+            message = toMessage(key, value);
+            for (ConflatingSession<String> session : keySessions) {
+                session.offer(key, message);
+            }
+        }
+        if (byPrefix.isEmpty()) {
+            return;
+        }
+        for (int length = 0; length <= key.length(); length++) {
+            Set<ConflatingSession<String>> prefixSessions = byPrefix.get(key.substring(0, length));
+            if (prefixSessions != null) {
+                if (message == null) {
+                    message = toMessage(key, value);
+                }
+                for (ConflatingSession<String> session : prefixSessions) {
+                    session.offer(key, message);
+                }
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private Object lockOf(String key) {
+        return keyLocks[(key.hashCode() & Integer.MAX_VALUE) % keyLocks.length];
+    }
+
+    private void index(Subscriber subscriber) {
+        keys(subscriber.subscription()).forEach(key -> add(byKey, key, subscriber.session()));
+        prefixes(subscriber.subscription()).forEach(prefix -> add(byPrefix, prefix, subscriber.session()));
+    }
+
+    private void unindex(ConflatingSession<String> session, List<String> keys, List<String> prefixes) {
+        keys.forEach(key -> remove(byKey, key, session));
+        prefixes.forEach(prefix -> remove(byPrefix, prefix, session));
+    }
+
+    //добавление и удаление внутри compute, что бы не добавить сессию в набор, который в этот момент убирается из карты
+    private static void add(Map<String, Set<ConflatingSession<String>>> index, String key, ConflatingSession<String> session) {
+        index.compute(key, (k, sessions) -> {
+            Set<ConflatingSession<String>> updated = sessions == null ? ConcurrentHashMap.newKeySet() : sessions;
+            updated.add(session);
+            return updated;
+        });
+    }
+
+    private static void remove(Map<String, Set<ConflatingSession<String>>> index, String key, ConflatingSession<String> session) {
+        index.computeIfPresent(key, (k, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    private TextMessage toMessage(String key, KafkaMessageDto value) {
+        ChangeDto change = ChangeDto.builder()
+                .key(key)
+                .value(value == null ? null : value.getValue())
+                .deleted(value == null)
+                .build();
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(change));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> keys(SubscriptionDto subscription) {
+        return Optional.ofNullable(subscription.getKeys()).orElse(List.of());
+    }
+
+    private static List<String> prefixes(SubscriptionDto subscription) {
+        return Optional.ofNullable(subscription.getPrefixes()).orElse(List.of());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.websocket;
+
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Отправка в WebSocket сессию со схлопыванием по ключу: пока клиент не забрал предыдущие сообщения,
+ * для каждого ключа хранится только последнее. Медленный клиент получает реже, но всегда актуальное,
+ * а буфер ограничен числом ключей, а не скоростью клиента.
+ * <p>
+ * Отправка неблокирующая, через асинхронный API нативной сессии: в полете не больше одного сообщения на сессию,
+ * следующее берется из ожидающих по завершении предыдущего. Пул {@code executor} только запускает отправки и
+ * не ждет сети, поэтому медленный TCP клиент не занимает его потоки и не задерживает остальные сессии.
+ * Если сообщение не ушло за {@code sendTimeout}, сессия закрывается.
+ * <p>
+ * Если ключей без отправки больше {@code maxPendingKeys}, сессия закрывается - клиент должен переподключиться
+ * и заново получить актуальные значения.
+ */
+@Slf4j
+public class ConflatingSession<K> {
+
+    private final WebSocketSession session;
+    private final RemoteEndpoint.Async remote;
+    private final Executor executor;
+    private final int maxPendingKeys;
+
+    private final Map<K, TextMessage> pending = new LinkedHashMap<>();
+    private boolean isSending;
+    private boolean isOverflowed;
+    private long conflated;
+
+    public ConflatingSession(WebSocketSession session, Executor executor, Duration sendTimeout) {
+        this(session, executor, sendTimeout, Integer.MAX_VALUE);
+    }
+
+    public ConflatingSession(WebSocketSession session, Executor executor, Duration sendTimeout, int maxPendingKeys) {
+        Session nativeSession = session instanceof NativeWebSocketSession nativeWebSocketSession
+                ? nativeWebSocketSession.getNativeSession(Session.class)
+                : null;
+        if (nativeSession == null) {
+            throw new IllegalArgumentException("Ожидается сессия jakarta.websocket, а не " + session.getClass().getName());
+        }
+        this.session = session;
+        this.remote = nativeSession.getAsyncRemote();
+        remote.setSendTimeout(sendTimeout.toMillis());
+        this.executor = executor;
+        this.maxPendingKeys = maxPendingKeys;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    public void offer(K key, TextMessage message) {
+        synchronized (pending) {
+            if (isOverflowed) {
+                return;
+            }
+            if (pending.size() >= maxPendingKeys && !pending.containsKey(key)) {
+                isOverflowed = true;
+                pending.clear();
+                log.warn("Сессия {} не успевает забирать изменения по {} ключам, закрываем", session.getId(), maxPendingKeys);
+                executor.execute(() -> close(CloseStatus.SESSION_NOT_RELIABLE));
+                return;
+            }
+            if (pending.put(key, message) != null) {
+                conflated++;
+            }
+            if (isSending) {
+                return;
+            }
+            isSending = true;
+        }
+        executor.execute(this::sendNext);
+    }
+
+    /**
+     * @return сколько сообщений было заменено более свежими до отправки
+     */
+    public long getConflated() {
+        synchronized (pending) {
+            return conflated;
+        }
+    }
+
+    private void sendNext() {
+        TextMessage message;
+        synchronized (pending) {
+            if (pending.isEmpty() || !session.isOpen()) {
+                pending.clear();
+                isSending = false;
+                return;
+            }
+            Iterator<TextMessage> iterator = pending.values().iterator();
+            message = iterator.next();
+            iterator.remove();
+        }
+        try {
+            remote.sendText(message.getPayload(), this::onSent);
+        } catch (RuntimeException e) {
+            onSent(new SendResult(e));
+        }
+    }
+
+    //вызывается потоком контейнера по завершении записи, возможно прямо внутри sendText - следующую отправку
+    //запускаем задачей пула, что бы не уходить в рекурсию
+    private void onSent(SendResult result) {
+        if (result.isOK()) {
+            executor.execute(this::sendNext);
+            return;
+        }
+        log.warn("Не удалось отправить в сессию {}: {}", session.getId(), result.getException().getMessage());
+        synchronized (pending) {
+            pending.clear();
+            isSending = false;
+        }
+        close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private void close(CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.debug("Сессия {} уже закрыта", session.getId());
+        }
+    }
+}
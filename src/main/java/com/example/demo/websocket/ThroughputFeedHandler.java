@@ -0,0 +1,68 @@
+package com.example.demo.websocket;
+
+import com.example.demo.metrics.KafkaClientMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Поток сводки по топикам (скорость отправки и чтения, лаг, задержка от отправки до получения) для наблюдения
+ * за бенчмарками вместо опроса /api/all. Сводка рассылается всем подписчикам раз в
+ * websocket.throughput.interval-ms; у медленного клиента неотправленная сводка заменяется новой.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ThroughputFeedHandler extends TextWebSocketHandler {
+
+    private static final String KEY = "throughput";
+
+    public record ThroughputUpdate(Instant takenAt, List<KafkaClientMetrics.TopicMetrics> topics) {}
+
+    private final KafkaClientMetrics kafkaClientMetrics;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService webSocketSendExecutor;
+
+    @Value("${websocket.send-timeout-ms}")
+    long sendTimeoutMs;
+
+    private final Map<String, ConflatingSession<String>> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        sessions.put(session.getId(), new ConflatingSession<>(session, webSocketSendExecutor, Duration.ofMillis(sendTimeoutMs)));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        ConflatingSession<String> removed = sessions.remove(session.getId());
+        if (removed != null && removed.getConflated() > 0) {
+            log.info("Сессия {} закрыта, схлопнуто сводок: {}", session.getId(), removed.getConflated());
+        }
+    }
+
+    @Scheduled(fixedRateString = "${websocket.throughput.interval-ms}")
+    public void publish() throws JsonProcessingException {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        KafkaClientMetrics.Snapshot snapshot = kafkaClientMetrics.getSnapshot();
+        TextMessage message = new TextMessage(objectMapper.writeValueAsString(new ThroughputUpdate(snapshot.takenAt(), snapshot.topics())));
+        sessions.values().forEach(session -> session.offer(KEY, message));
+    }
+}
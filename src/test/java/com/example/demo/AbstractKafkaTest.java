@@ -18,11 +18,12 @@ import org.testcontainers.shaded.com.google.common.collect.ArrayListMultimap;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
 import java.util.List;
-import java.util.LongSummaryStatistics;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -44,7 +45,9 @@ public abstract class AbstractKafkaTest extends AbstractIntegrationTest {
             Топик:%s Повторы:%s
             Полиси:%s mcl:%s dr:%s
             Сообщений:%s Дубли:%s%%""";
-    public static final String STATS_FORMAT = "Min:%s Max:%s Avg:%s";
+    public static final String STATS_FORMAT = """
+            Пропускная способность, msg/s Min:%.0f Max:%.0f Avg:%.0f
+            Задержка до ack, ms p50:%.3f p90:%.3f p99:%.3f p999:%.3f max:%.3f""";
     public static final String LOG_FORMAT = """
             %s
             %s
@@ -52,7 +55,21 @@ public abstract class AbstractKafkaTest extends AbstractIntegrationTest {
 
     public record KafkaRecord(String key, String value) {}
 
-    public record TestResults(Integer msgCount, Integer percentage, Duration duration, Map<String, String> topicConfig) {}
+    /**
+     * @param duration  время от первой отправки до последнего ack от брокера
+     * @param latencies задержки send-to-ack по каждой записи
+     */
+    public record SendMeasurement(Duration duration, LatencyHistogram latencies) {
+
+        public double throughput() {
+            return latencies.getTotalCount() * 1_000_000_000.0 / Math.max(1, duration.toNanos());
+        }
+    }
+
+    public record MeasurementSummary(double minThroughput, double maxThroughput, double avgThroughput,
+                                     double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs) {}
+
+    public record TestResults(Integer msgCount, Integer percentage, SendMeasurement measurement, Map<String, String> topicConfig) {}
 
     @Autowired
     protected KafkaTemplate<String, String> kafkaTemplate;
@@ -74,7 +91,7 @@ public abstract class AbstractKafkaTest extends AbstractIntegrationTest {
         createTopic(topic);
 
         //when
-        fillTopicAndGetDuration(topicName, messages);
+        fillTopicAndMeasure(topicName, messages);
     }
 
     public Admin createKafkaClient() {
@@ -111,20 +128,36 @@ public abstract class AbstractKafkaTest extends AbstractIntegrationTest {
                 }).toList();
     }
 
-    public Duration fillTopicAndGetDuration(String topicName, List<KafkaRecord> messages) {
+    /**
+     * Отправляет сообщения и ждет ack от брокера по каждому из них. Время замеряется до последнего ack,
+     * а не до попадания записей в буфер продюсера, т.е. отражает реальную пропускную способность брокера.
+     */
+    public SendMeasurement fillTopicAndMeasure(String topicName, List<KafkaRecord> messages) {
+        return fillTopicAndMeasure(kafkaTemplate, topicName, messages);
+    }
+
+    public SendMeasurement fillTopicAndMeasure(KafkaTemplate<String, String> template, String topicName, List<KafkaRecord> messages) {
+        LatencyHistogram latencies = new LatencyHistogram();
         long before = System.nanoTime();
-        messages.forEach(kafkaRecord -> kafkaTemplate.send(topicName, kafkaRecord.key(), kafkaRecord.value()));
+        CompletableFuture<?>[] futures = messages.stream()
+                .map(kafkaRecord -> {
+                    long sentAt = System.nanoTime();
+                    return template.send(topicName, kafkaRecord.key(), kafkaRecord.value())
+                            .whenComplete((result, e) -> latencies.record(System.nanoTime() - sentAt));
+                })
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
         long after = System.nanoTime();
-        return Duration.ofNanos(after - before);
+        return new SendMeasurement(Duration.ofNanos(after - before), latencies);
     }
 
     public void fillStatistics(ArrayListMultimap<String, TestResults> testToResultMap,
                                String topicName,
                                int msgCount,
                                int percentage,
-                               Duration duration,
+                               SendMeasurement measurement,
                                Map<String, String> topicConfig) {
-        testToResultMap.put(topicName, new TestResults(msgCount, percentage, duration, topicConfig));
+        testToResultMap.put(topicName, new TestResults(msgCount, percentage, measurement, topicConfig));
     }
 
     public static void logResults(ArrayListMultimap<String, TestResults> testToResultMap) {
@@ -163,36 +196,54 @@ public abstract class AbstractKafkaTest extends AbstractIntegrationTest {
                 }).orElseThrow();
     }
 
-    private static String createStatisticString(Collection<TestResults> testResults) {
-        List<Long> allMills = testResults.stream()
-                .map(testResult -> testResult.duration.toMillis())
+    /**
+     * Сводка по нескольким повторам одного теста: пропускная способность по каждому повтору (без крайних значений)
+     * и общая гистограмма задержек по всем записям всех повторов.
+     */
+    public static MeasurementSummary summarize(Collection<SendMeasurement> measurements) {
+        List<Double> allThroughputs = measurements.stream()
+                .map(SendMeasurement::throughput)
                 .toList();
+        DoubleSummaryStatistics throughput = removeElementsIfNeed(allThroughputs).stream()
+                .mapToDouble(value -> value)
+                .summaryStatistics();
 
-        LongSummaryStatistics statistics = calculateStatistics(allMills);
+        LatencyHistogram latencies = new LatencyHistogram();
+        measurements.forEach(measurement -> latencies.merge(measurement.latencies()));
+
+        return new MeasurementSummary(throughput.getMin(), throughput.getMax(), throughput.getAverage(),
+                                      toMillis(latencies.getValueAtPercentile(50)),
+                                      toMillis(latencies.getValueAtPercentile(90)),
+                                      toMillis(latencies.getValueAtPercentile(99)),
+                                      toMillis(latencies.getValueAtPercentile(99.9)),
+                                      toMillis(latencies.getMax()));
+    }
+
+    private static String createStatisticString(Collection<TestResults> testResults) {
+        MeasurementSummary summary = summarize(testResults.stream().map(TestResults::measurement).toList());
         return format(STATS_FORMAT,
-                      statistics.getMin(), statistics.getMax(), statistics.getAverage());
+                      summary.minThroughput(), summary.maxThroughput(), summary.avgThroughput(),
+                      summary.p50Ms(), summary.p90Ms(), summary.p99Ms(), summary.p999Ms(), summary.maxMs());
     }
 
-    private static LongSummaryStatistics calculateStatistics(List<Long> mills) {
-        return removeElementsIfNeed(mills).stream()
-                .mapToLong(value -> value)
-                .summaryStatistics();
+    private static double toMillis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
     }
 
     /**
      * Если элементов больше трех, то удаляем самый большой и самый маленький, что бы
      * избежать искажений из-за долгого прогрева соединения, и т.п..
      */
-    private static List<Long> removeElementsIfNeed(List<Long> mills) {
-        if (mills.size() >= 3) {
-            return mills.stream()
+    private static <T extends Comparable<T>> List<T> removeElementsIfNeed(List<T> values) {
+        if (values.size() >= 3) {
+            return values.stream()
                     .sorted(Comparator.reverseOrder())
                     .skip(1)
                     .sorted()
                     .skip(1)
                     .toList();
         } else {
-            return mills;
+            return values;
         }
     }
 }
@@ -0,0 +1,77 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Нагрузочный тест: держим в работе много долгих /api/sleep и замеряем задержку /api/ping.
+ * Наследники отличаются только тем, на каких потоках работает Tomcat.
+ */
+public abstract class AbstractPingUnderLoadTest extends AbstractIntegrationTest {
+
+    protected static final int SLEEP_REQUESTS = 200;
+    protected static final long SLEEP_MS = 5_000;
+    protected static final int PING_REQUESTS = 50;
+
+    @Value("${local.server.port}")
+    int port;
+
+    HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    @Test
+    @DisplayName("Задержка /api/ping при долгих запросах /api/sleep в работе")
+    void pingLatencyUnderSleepLoad() throws Exception {
+        //given
+        List<CompletableFuture<HttpResponse<Void>>> sleeps = IntStream.range(0, SLEEP_REQUESTS)
+                .mapToObj(i -> httpClient.sendAsync(request(format("/api/sleep?ms=%s", SLEEP_MS)), HttpResponse.BodyHandlers.discarding()))
+                .toList();
+        Thread.sleep(500); // даем sleep-запросам занять обработчики
+
+        //when
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (int i = 0; i < PING_REQUESTS; i++) {
+            long before = System.nanoTime();
+            HttpResponse<String> ping = httpClient.send(request("/api/ping"), HttpResponse.BodyHandlers.ofString());
+            latencies.record(System.nanoTime() - before);
+            assertEquals(200, ping.statusCode(), "Код ответа /api/ping");
+        }
+        CompletableFuture.allOf(sleeps.toArray(CompletableFuture[]::new)).join();
+        sleeps.forEach(sleep -> assertEquals(200, sleep.join().statusCode(), "Код ответа /api/sleep"));
+
+        //then
+        System.out.println("----------------------------");
+        System.out.println(format("%s: /api/sleep в работе:%s по %sмс, /api/ping p50:%sмс p99:%sмс max:%sмс",
+                                  getClass().getSimpleName(), SLEEP_REQUESTS, SLEEP_MS,
+                                  latencies.getValueAtPercentile(50).toMillis(),
+                                  latencies.getValueAtPercentile(99).toMillis(),
+                                  latencies.getMax().toMillis()));
+        assertPingLatency(latencies);
+    }
+
+    /**
+     * Проверка, ради которой наследник существует: ждал ли /api/ping освобождения потоков, занятых /api/sleep.
+     */
+    protected abstract void assertPingLatency(LatencyHistogram latencies);
+
+    private HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create(format("http://localhost:%s%s", port, path)))
+                .timeout(Duration.ofMinutes(5))
+                .GET()
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.RecordComponent;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Пишет результаты бенчмарка в target/benchmark-reports в двух видах: JSON (для diff между прогонами)
+ * и CSV (для таблиц). Строки отчета - record'ы, колонки CSV берутся из их компонентов.
+ */
+public class BenchmarkReportWriter {
+
+    public static final Path REPORT_DIR = Path.of("target", "benchmark-reports");
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * @return путь к JSON отчету
+     */
+    public Path write(String name, List<? extends Record> rows) {
+        String baseName = name + "-" + LocalDateTime.now().format(TIMESTAMP);
+        try {
+            Files.createDirectories(REPORT_DIR);
+            Path json = REPORT_DIR.resolve(baseName + ".json");
+            objectMapper.writeValue(json.toFile(), rows);
+            Files.write(REPORT_DIR.resolve(baseName + ".csv"), toCsv(rows));
+            return json;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> toCsv(List<? extends Record> rows) {
+        List<String> lines = new ArrayList<>();
+        if (rows.isEmpty()) {
+            return lines;
+        }
+        RecordComponent[] components = rows.get(0).getClass().getRecordComponents();
+        lines.add(Arrays.stream(components).map(RecordComponent::getName).collect(Collectors.joining(",")));
+        rows.forEach(row -> lines.add(Arrays.stream(components)
+                                              .map(component -> valueOf(component, row))
+                                              .collect(Collectors.joining(","))));
+        return lines;
+    }
+
+    private static String valueOf(RecordComponent component, Record row) {
+        try {
+            Object value = component.getAccessor().invoke(row);
+            return value == null ? "" : value.toString().replace(",", ";");
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
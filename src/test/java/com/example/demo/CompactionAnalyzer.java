@@ -0,0 +1,104 @@
+package com.example.demo;
+
+import com.example.demo.TopicScanner.ScanResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Вместо того что бы просто ждать фиксированное время, периодически сканирует топик и следит за долей дублирующих
+ * ключей. Компакция считается завершенной, когда доля уже снизилась относительно первого скана и после этого
+ * не меняется несколько сканов подряд: без снижения неизменная доля значит, что компакция еще не начиналась
+ * (log cleaner просыпается раз в log.cleaner.backoff.ms, 15с по умолчанию). Время до компакции отсчитывается
+ * от окончания записи до первого скана с установившимся значением.
+ */
+public class CompactionAnalyzer {
+
+    public record Sample(Duration elapsed, ScanResult scan) {}
+
+    public record CompactionReport(List<Sample> samples, Duration timeToCompaction, boolean isSettled) {
+
+        public ScanResult initial() {
+            return samples.get(0).scan();
+        }
+
+        public ScanResult settled() {
+            return samples.get(samples.size() - 1).scan();
+        }
+
+        @Override
+        public String toString() {
+            ScanResult initial = initial();
+            ScanResult settled = settled();
+            return format("""
+                                  До:    записей:%s уникальных ключей:%s дубли:%.1f%% tombstone:%s
+                                  После: записей:%s уникальных ключей:%s дубли:%.1f%% tombstone:%s
+                                  Время до компакции:%sс%s, сканов:%s""",
+                          initial.records(), initial.distinctKeys(), initial.duplicateRatio() * 100, initial.tombstones(),
+                          settled.records(), settled.distinctKeys(), settled.duplicateRatio() * 100, settled.tombstones(),
+                          timeToCompaction.toSeconds(), isSettled ? "" : " (не дождались)", samples.size());
+        }
+    }
+
+    private final TopicScanner topicScanner;
+    private final Duration pollInterval;
+    private final int stableScans;
+    private final Duration timeout;
+
+    /**
+     * @param stableScans сколько сканов подряд доля дублей не должна меняться
+     */
+    public CompactionAnalyzer(TopicScanner topicScanner, Duration pollInterval, int stableScans, Duration timeout) {
+        this.topicScanner = topicScanner;
+        this.pollInterval = pollInterval;
+        this.stableScans = stableScans;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param writeEnd   System.nanoTime() окончания записи в топик - от него отсчитывается время до компакции
+     * @param beforeScan вызывается перед каждым сканом; удобно писать маркерную запись - сегмент закрывается
+     *                   (и становится доступен для компакции) только при записи после segment.ms
+     */
+    public CompactionReport analyze(String topicName, long writeEnd, Runnable beforeScan) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Sample> samples = new ArrayList<>();
+        ScanResult initial = topicScanner.scan(topicName);
+        samples.add(new Sample(elapsedSince(writeEnd), initial));
+
+        boolean isStarted = false;
+        int unchanged = 0;
+        int settledAt = 0;
+        while (unchanged < stableScans && elapsedSince(start).compareTo(timeout) < 0) {
+            Thread.sleep(pollInterval.toMillis());
+            beforeScan.run();
+            ScanResult scan = topicScanner.scan(topicName);
+            ScanResult previous = samples.get(samples.size() - 1).scan();
+            samples.add(new Sample(elapsedSince(writeEnd), scan));
+
+            if (!isStarted) {
+                isStarted = initial.duplicateRatio() - scan.duplicateRatio() >= 0.001;
+                settledAt = samples.size() - 1;
+            } else if (isSame(previous, scan)) {
+                unchanged++;
+            } else {
+                unchanged = 0;
+                settledAt = samples.size() - 1;
+            }
+        }
+        return new CompactionReport(samples, samples.get(settledAt).elapsed(), unchanged >= stableScans);
+    }
+
+    //сравниваем именно дубли и tombstone - маркерные записи увеличивают число записей, но не долю дублей после компакции
+    private static boolean isSame(ScanResult previous, ScanResult current) {
+        return Math.abs(previous.duplicateRatio() - current.duplicateRatio()) < 0.001
+                && previous.tombstones() == current.tombstones();
+    }
+
+    private static Duration elapsedSince(long start) {
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+}
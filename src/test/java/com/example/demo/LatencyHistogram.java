@@ -0,0 +1,94 @@
+package com.example.demo;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Лог-линейная гистограмма задержек в наносекундах (по мотивам HdrHistogram): значения до 128нс хранятся точно,
+ * дальше каждый интервал [2^n, 2^(n+1)) делится на 64 корзины, т.е. погрешность перцентиля не больше ~1.5%.
+ * Запись потокобезопасна - колбэки продюсера приходят из его I/O потока.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_COUNT = 128;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + 56 * HALF_SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        maxValue.accumulateAndGet(value, Math::max);
+    }
+
+    public void record(Duration duration) {
+        record(duration.toNanos());
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count > 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        maxValue.accumulateAndGet(other.maxValue.get(), Math::max);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public Duration getMax() {
+        return Duration.ofNanos(maxValue.get());
+    }
+
+    /**
+     * @param percentile значение от 0 до 100, например 99.9
+     */
+    public Duration getValueAtPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return Duration.ZERO;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            accumulated += counts.get(i);
+            if (accumulated >= target) {
+                return Duration.ofNanos(Math.min(valueOf(i), maxValue.get()));
+            }
+        }
+        return getMax();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - 6;
+        int subBucket = (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Середина диапазона значений, попадающих в корзину.
+     */
+    private static long valueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        long lowest = subBucket << shift;
+        long width = 1L << shift;
+        return lowest + width / 2;
+    }
+}
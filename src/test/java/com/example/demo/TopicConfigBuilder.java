@@ -7,12 +7,16 @@ import java.util.Optional;
 import static org.apache.kafka.common.config.TopicConfig.CLEANUP_POLICY_CONFIG;
 import static org.apache.kafka.common.config.TopicConfig.DELETE_RETENTION_MS_CONFIG;
 import static org.apache.kafka.common.config.TopicConfig.MAX_COMPACTION_LAG_MS_CONFIG;
+import static org.apache.kafka.common.config.TopicConfig.MIN_CLEANABLE_DIRTY_RATIO_CONFIG;
+import static org.apache.kafka.common.config.TopicConfig.SEGMENT_MS_CONFIG;
 
 public class TopicConfigBuilder {
 
     private String cleanupPolicy;
     private String maxCompactionLagMs;
     private String deleteRetentionMs;
+    private String segmentMs;
+    private String minCleanableDirtyRatio;
 
     public static TopicConfigBuilder cleanupPolicy(String cleanupPolicy){
         return new TopicConfigBuilder(cleanupPolicy);
@@ -32,6 +36,16 @@ public class TopicConfigBuilder {
         return this;
     }
 
+    public TopicConfigBuilder setSegmentMs(Long segmentMs) {
+        this.segmentMs = segmentMs.toString();
+        return this;
+    }
+
+    public TopicConfigBuilder setMinCleanableDirtyRatio(Double minCleanableDirtyRatio) {
+        this.minCleanableDirtyRatio = minCleanableDirtyRatio.toString();
+        return this;
+    }
+
     public TopicConfigBuilder setCleanupPolicy(String cleanupPolicy) {
         this.cleanupPolicy = cleanupPolicy;
         return this;
@@ -44,6 +58,10 @@ public class TopicConfigBuilder {
                 .ifPresent(value -> config.putIfAbsent(MAX_COMPACTION_LAG_MS_CONFIG, value));
         Optional.ofNullable(deleteRetentionMs)
                 .ifPresent(value -> config.putIfAbsent(DELETE_RETENTION_MS_CONFIG, value));
+        Optional.ofNullable(segmentMs)
+                .ifPresent(value -> config.putIfAbsent(SEGMENT_MS_CONFIG, value));
+        Optional.ofNullable(minCleanableDirtyRatio)
+                .ifPresent(value -> config.putIfAbsent(MIN_CLEANABLE_DIRTY_RATIO_CONFIG, value));
         Optional.ofNullable(cleanupPolicy)
                 .ifPresent(value -> config.putIfAbsent(CLEANUP_POLICY_CONFIG, value));
 
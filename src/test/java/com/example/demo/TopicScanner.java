@@ -0,0 +1,91 @@
+package com.example.demo;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Вычитывает топик целиком, от начала до end offset на момент старта, так же как это делает листнер при
+ * перечитывании состояния. Значения не десериализуются - нужны только ключи и признак tombstone.
+ */
+public class TopicScanner {
+
+    /**
+     * @param records      сколько записей физически лежит в топике
+     * @param distinctKeys сколько из них уникальных ключей
+     * @param tombstones   сколько записей с null значением
+     * @param bytes        суммарный размер ключей и значений
+     * @param headerBytes  суммарный размер заголовков (имена и значения)
+     * @param duration     время полного вычитывания
+     */
+    public record ScanResult(long records, long distinctKeys, long tombstones, long bytes, long headerBytes, Duration duration) {
+
+        public double duplicateRatio() {
+            return records == 0 ? 0 : (double) (records - distinctKeys) / records;
+        }
+    }
+
+    private final String bootstrapServers;
+
+    public TopicScanner(String bootstrapServers) {
+        this.bootstrapServers = bootstrapServers;
+    }
+
+    public ScanResult scan(String topicName) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5_000);
+
+        long before = System.nanoTime();
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(properties)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(topicName).stream()
+                    .map(PartitionInfo::partition)
+                    .map(partition -> new TopicPartition(topicName, partition))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            Set<String> keys = new HashSet<>();
+            long records = 0;
+            long tombstones = 0;
+            long bytes = 0;
+            long headerBytes = 0;
+            while (!isReachedEnd(consumer, endOffsets)) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(500))) {
+                    records++;
+                    keys.add(record.key());
+                    bytes += Math.max(0, record.serializedKeySize()) + Math.max(0, record.serializedValueSize());
+                    for (Header header : record.headers()) {
+                        headerBytes += header.key().getBytes(StandardCharsets.UTF_8).length + (header.value() == null ? 0 : header.value().length);
+                    }
+                    if (record.value() == null) {
+                        tombstones++;
+                    }
+                }
+            }
+            return new ScanResult(records, keys.size(), tombstones, bytes, headerBytes, Duration.ofNanos(System.nanoTime() - before));
+        }
+    }
+
+    private static boolean isReachedEnd(KafkaConsumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.dto.UnknownDto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Минимальная бинарная кодировка для сравнения с JSON: [тег типа:1 байт][длина строки:int, -1 для null][UTF-8].
+ * Тип передается тегом в самом значении, поэтому заголовок с именем класса не нужен.
+ */
+public final class CompactBinaryCodec {
+
+    static final byte KAFKA_MESSAGE_TAG = 1;
+    static final byte UNKNOWN_TAG = 2;
+
+    private CompactBinaryCodec() {
+    }
+
+    public static byte[] encode(Object data) {
+        if (data instanceof KafkaMessageDto dto) {
+            return encode(KAFKA_MESSAGE_TAG, dto.getValue());
+        } else if (data instanceof UnknownDto dto) {
+            return encode(UNKNOWN_TAG, dto.getValue());
+        }
+        throw new IllegalArgumentException("Unsupported type: " + data.getClass());
+    }
+
+    public static Object decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte tag = buffer.get();
+        String value = readString(buffer);
+        return switch (tag) {
+            case KAFKA_MESSAGE_TAG -> new KafkaMessageDto(value);
+            case UNKNOWN_TAG -> new UnknownDto(value);
+            default -> throw new IllegalArgumentException("Unknown type tag: " + tag);
+        };
+    }
+
+    private static byte[] encode(byte tag, String value) {
+        if (value == null) {
+            return ByteBuffer.allocate(5).put(tag).putInt(-1).array();
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(5 + utf8.length)
+                .put(tag)
+                .putInt(utf8.length)
+                .put(utf8)
+                .array();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
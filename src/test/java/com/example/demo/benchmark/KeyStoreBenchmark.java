@@ -0,0 +1,105 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.state.CompactKeyMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.lang.String.format;
+
+/**
+ * Ключи как в KafkaController (UUID.randomUUID().toString()): HashMap&lt;String, ...&gt; против {@link CompactKeyMap}.
+ * Память на ключ считается по приросту занятой кучи после заполнения и печатается в лог прогона,
+ * время поиска - ns/op по заранее отобранным ключам (строки, как они пришли бы из записи кафки).
+ * На 50М ключей HashMap нужно ~7Гб кучи.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms16g", "-Xmx16g"})
+public class KeyStoreBenchmark {
+
+    private static final int PROBES = 1 << 20;
+
+    @Param({"1000000", "10000000", "50000000"})
+    int keyCount;
+
+    @Param({"HashMap", "CompactKeyMap"})
+    String store;
+
+    private Function<String, Object> lookup;
+    private String[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        probes = new String[PROBES];
+        int probeStep = Math.max(1, keyCount / PROBES);
+
+        long heapBefore = usedHeap();
+        if (store.equals("HashMap")) {
+            Map<String, Object> map = new HashMap<>();
+            for (int i = 0; i < keyCount; i++) {
+                String key = new UUID(random.nextLong(), random.nextLong()).toString();
+                map.put(key, Boolean.TRUE);
+                addProbe(i, probeStep, key);
+            }
+            lookup = map::get;
+        } else {
+            CompactKeyMap<Object> map = new CompactKeyMap<>();
+            for (int i = 0; i < keyCount; i++) {
+                String key = new UUID(random.nextLong(), random.nextLong()).toString();
+                map.put(key, Boolean.TRUE);
+                addProbe(i, probeStep, key);
+            }
+            lookup = map::get;
+        }
+        // строки проб живут в обоих вариантах одинаково, их вычитаем
+        long heapAfter = usedHeap() - (long) PROBES * 80;
+        System.out.println(format("%n%s, %s ключей: %.1f байт кучи на ключ", store, keyCount, (double) (heapAfter - heapBefore) / keyCount));
+    }
+
+    // пробы - каждый probeStep-ый ключ, каждая новым объектом String, как после десериализации записи.
+    // String кэширует свой hashCode, поэтому при повторных проходах по пробам HashMap немного в выигрыше
+    private void addProbe(int i, int probeStep, String key) {
+        if (i % probeStep == 0 && i / probeStep < PROBES) {
+            probes[i / probeStep] = new String(key);
+        }
+    }
+
+    @Benchmark
+    public Object lookup() {
+        String key = probes[next];
+        next = (next + 1) % PROBES;
+        if (key == null) {
+            next = 0;
+            key = probes[0];
+        }
+        return lookup.apply(key);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.dto.UnknownDto;
+import com.example.demo.serde.TypeIdJsonDeserializer;
+import com.example.demo.serde.TypeIdJsonSerializer;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение стоимости сериализации/десериализации одной записи:
+ * JSON с полным именем класса в заголовке __TypeId__ (как было в application.yaml до {@link TypeIdJsonSerializer}),
+ * JSON с коротким идентификатором типа и заранее созданными ObjectReader/ObjectWriter, JSON без заголовков типа
+ * и компактная бинарная кодировка {@link CompactBinaryCodec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final String TOPIC = "topic-1";
+
+    @Param({"11", "1024"})
+    int valueLength;
+
+    private KafkaMessageDto message;
+    private UnknownDto unknown;
+
+    private JsonSerializer<Object> typedSerializer;
+    private JsonSerializer<Object> untypedSerializer;
+    private JsonDeserializer<Object> typedDeserializer;
+    private JsonDeserializer<KafkaMessageDto> untypedDeserializer;
+    private TypeIdJsonSerializer typeIdSerializer;
+    private TypeIdJsonDeserializer typeIdDeserializer;
+
+    private Headers typedHeaders;
+    private byte[] typedBytes;
+    private Headers typeIdHeaders;
+    private byte[] typeIdBytes;
+    private byte[] untypedBytes;
+    private byte[] binaryBytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        message = new KafkaMessageDto("x".repeat(valueLength));
+        unknown = UnknownDto.empty();
+
+        typedSerializer = new JsonSerializer<>();
+        untypedSerializer = new JsonSerializer<>();
+        untypedSerializer.setAddTypeInfo(false);
+
+        typedDeserializer = new JsonDeserializer<>();
+        // заголовки не удаляем, иначе второй вызов на тех же headers уже не найдет тип
+        typedDeserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "*",
+                                           JsonDeserializer.REMOVE_TYPE_INFO_HEADERS, false), false);
+        untypedDeserializer = new JsonDeserializer<>(KafkaMessageDto.class, false);
+        typeIdSerializer = new TypeIdJsonSerializer();
+        typeIdDeserializer = new TypeIdJsonDeserializer();
+
+        typedHeaders = new RecordHeaders();
+        typedBytes = typedSerializer.serialize(TOPIC, typedHeaders, message);
+        untypedBytes = untypedSerializer.serialize(TOPIC, new RecordHeaders(), message);
+        typeIdHeaders = new RecordHeaders();
+        typeIdBytes = typeIdSerializer.serialize(TOPIC, typeIdHeaders, message);
+        binaryBytes = CompactBinaryCodec.encode(message);
+    }
+
+    @Benchmark
+    public byte[] serializeJsonWithTypeHeaders() {
+        return typedSerializer.serialize(TOPIC, new RecordHeaders(), message);
+    }
+
+    @Benchmark
+    public byte[] serializeJsonWithoutTypeHeaders() {
+        return untypedSerializer.serialize(TOPIC, new RecordHeaders(), message);
+    }
+
+    @Benchmark
+    public byte[] serializeJsonWithTypeId() {
+        return typeIdSerializer.serialize(TOPIC, new RecordHeaders(), message);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return CompactBinaryCodec.encode(message);
+    }
+
+    @Benchmark
+    public byte[] serializeUnknownJsonWithTypeHeaders() {
+        return typedSerializer.serialize(TOPIC, new RecordHeaders(), unknown);
+    }
+
+    @Benchmark
+    public byte[] serializeUnknownBinary() {
+        return CompactBinaryCodec.encode(unknown);
+    }
+
+    @Benchmark
+    public Object deserializeJsonWithTypeHeaders() {
+        return typedDeserializer.deserialize(TOPIC, typedHeaders, typedBytes);
+    }
+
+    @Benchmark
+    public Object deserializeJsonWithoutTypeHeaders() {
+        return untypedDeserializer.deserialize(TOPIC, new RecordHeaders(), untypedBytes);
+    }
+
+    @Benchmark
+    public Object deserializeJsonWithTypeId() {
+        return typeIdDeserializer.deserialize(TOPIC, typeIdHeaders, typeIdBytes);
+    }
+
+    @Benchmark
+    public Object deserializeBinary() {
+        return CompactBinaryCodec.decode(binaryBytes);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.kafka.ListenerThree;
+import com.example.demo.kafka.ListenerThreeBatch;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ListenerThreeBatch} бросает BatchListenerFailedException с индексом упавшей записи: DefaultErrorHandler
+ * должен закоммитить записи до нее, повторять и отдать в recoverer только ее, а остальные обработать дальше.
+ * Листнер подключается к отдельному топику через тот же эндпоинт, что строит {@code @KafkaListener}.
+ */
+@DisplayName("Пакетный листнер: ошибка одной записи не отбрасывает и не повторяет всю пачку")
+class BatchListenerFailedTests extends AbstractKafkaTest {
+
+    static final String TOPIC = "batch-failed-test";
+    static final int RECORDS = 10;
+    static final int POISON_INDEX = 5;
+    static final long RETRIES = 2;
+
+    @Autowired
+    ConcurrentKafkaListenerContainerFactory<?, ?> kafkaListenerContainerFactory;
+
+    @Autowired
+    KafkaTemplate<String, Object> objectKafkaTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Записи до упавшей обрабатываются один раз, упавшая повторяется и уходит в recoverer")
+    void test_10() throws Exception {
+        //given
+        createTopic(TopicBuilder.name(TOPIC).partitions(1).build());
+        for (int i = 0; i < RECORDS; i++) {
+            String value = i == POISON_INDEX ? ListenerThree.POISON_VALUE : "value-" + i;
+            objectKafkaTemplate.send(TOPIC, "key-" + i, new KafkaMessageDto(value)).join();
+        }
+        Map<Long, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+        ListenerThreeBatch listener = new ListenerThreeBatch();
+        ReflectionTestUtils.setField(listener, "isNeedResetKafkaReadOffset", false);
+        List<ConsumerRecord<?, ?>> recovered = new CopyOnWriteArrayList<>();
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler((record, e) -> recovered.add(record), new FixedBackOff(0, RETRIES));
+        String groupId = UUID.randomUUID().toString();
+
+        //when
+        MessageListenerContainer container = createContainer(listener, groupId);
+        AbstractMessageListenerContainer<Object, Object> listenerContainer = (AbstractMessageListenerContainer<Object, Object>) container;
+        listenerContainer.setCommonErrorHandler(errorHandler);
+        // вызывается перед каждой передачей пачки листнеру, в том числе при повторах
+        listenerContainer.setBatchInterceptor((records, consumer) -> {
+            records.forEach(record -> deliveries.computeIfAbsent(record.offset(), offset -> new AtomicInteger()).incrementAndGet());
+            return records;
+        });
+        container.start();
+        try {
+            await().atMost(Duration.ofMinutes(1))
+                    .until(() -> committedOffset(groupId) == RECORDS);
+        } finally {
+            container.stop();
+        }
+
+        //then
+        assertEquals(1, recovered.size());
+        assertEquals(POISON_INDEX, recovered.get(0).offset());
+        for (long offset = 0; offset < POISON_INDEX; offset++) {
+            assertEquals(1, deliveries.get(offset).get(), "Запись до упавшей обработана повторно: " + offset);
+        }
+        assertEquals(1 + RETRIES, deliveries.get((long) POISON_INDEX).get());
+        for (long offset = POISON_INDEX + 1; offset < RECORDS; offset++) {
+            assertTrue(deliveries.containsKey(offset), "Запись после упавшей не обработана: " + offset);
+        }
+    }
+
+    private MessageListenerContainer createContainer(ListenerThreeBatch listener, String groupId) throws NoSuchMethodException {
+        DefaultMessageHandlerMethodFactory handlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        handlerMethodFactory.setConversionService(new DefaultFormattingConversionService());
+        handlerMethodFactory.afterPropertiesSet();
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        MethodKafkaListenerEndpoint<Object, Object> endpoint = new MethodKafkaListenerEndpoint<>();
+        endpoint.setId(TOPIC + "-" + groupId);
+        endpoint.setGroupId(groupId);
+        endpoint.setTopics(TOPIC);
+        endpoint.setConsumerProperties(consumerProperties);
+        endpoint.setBean(listener);
+        endpoint.setMethod(ListenerThreeBatch.class.getMethod("batchHandler", List.class));
+        endpoint.setBatchListener(true);
+        endpoint.setMessageHandlerMethodFactory(handlerMethodFactory);
+        return kafkaListenerContainerFactory.createListenerContainer(endpoint);
+    }
+
+    private long committedOffset(String groupId) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(properties)) {
+            OffsetAndMetadata committed = consumer.committed(Set.of(partition)).get(partition);
+            return committed == null ? -1 : committed.offset();
+        }
+    }
+}
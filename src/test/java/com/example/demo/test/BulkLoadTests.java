@@ -0,0 +1,121 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.dto.LoadResultDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static java.lang.String.format;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT,
+                properties = "kafka.producer.bulk-load.max-in-flight=" + BulkLoadTests.MAX_IN_FLIGHT)
+@DisplayName("Потоковая загрузка NDJSON через /api/load")
+class BulkLoadTests extends AbstractKafkaTest {
+
+    static final int TOPIC_NUM = 20;
+    static final String TOPIC = "topic-" + TOPIC_NUM;
+    static final int MAX_IN_FLIGHT = 8;
+    static final int VALID = 1000;
+    static final int BLANK = 50;
+    static final int INVALID = 5;
+
+    static List<String> results = new ArrayList<>();
+
+    @Value("${local.server.port}")
+    int port;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    HttpClient httpClient = HttpClient.newHttpClient();
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    @Test
+    @DisplayName("Пустые строки пропускаются, невалидные считаются, все валидные записи доходят до топика")
+    void test_10() throws Exception {
+        //given
+        createTopic(TopicBuilder.name(TOPIC).partitions(3).build());
+        Map<String, String> expected = new HashMap<>();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < VALID; i++) {
+            String key = UUID.randomUUID().toString();
+            expected.put(key, "value-" + i);
+            body.append(format("{\"key\": \"%s\", \"value\": \"value-%s\"}%n", key, i));
+            if (i % (VALID / BLANK) == 0) {
+                body.append(i % 2 == 0 ? "\n" : "   \n");
+            }
+            if (i % (VALID / INVALID) == 0) {
+                body.append("{\"key\": \"broken\", \"value\": \n");
+            }
+        }
+
+        //when
+        HttpRequest request = HttpRequest.newBuilder(URI.create(format("http://localhost:%s/api/load?topicNum=%s", port, TOPIC_NUM)))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        //then
+        assertEquals(200, response.statusCode(), response.body());
+        LoadResultDto result = objectMapper.readValue(response.body(), LoadResultDto.class);
+        results.add(format("max-in-flight:%s %s", MAX_IN_FLIGHT, result));
+        assertEquals(VALID + INVALID, result.getRecords());
+        assertEquals(VALID, result.getSent());
+        assertEquals(INVALID, result.getInvalid());
+        assertEquals(0, result.getFailed());
+        assertEquals(expected, readTopic(expected.size()));
+    }
+
+    private Map<String, String> readTopic(int count) throws Exception {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, UUID.randomUUID().toString());
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        Map<String, String> actual = new HashMap<>();
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(properties)) {
+            consumer.subscribe(List.of(TOPIC));
+            await().atMost(Duration.ofSeconds(30))
+                    .until(() -> {
+                        for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                            actual.put(record.key(), objectMapper.readValue(record.value(), KafkaMessageDto.class).getValue());
+                        }
+                        return actual.size() >= count;
+                    });
+        }
+        return actual;
+    }
+}
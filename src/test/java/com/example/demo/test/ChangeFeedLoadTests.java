@@ -0,0 +1,161 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.dto.ChangeDto;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.dto.SubscriptionDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DisplayName("Подписка на изменения ключей через WebSocket: тысячи клиентов и схлопывание")
+class ChangeFeedLoadTests extends AbstractKafkaTest {
+
+    static final int CLIENTS = 2000;
+    static final int GROUPS = 20;
+    static final int KEYS = 1000;
+    static final int ROUNDS = 10;
+
+    static List<String> results = new ArrayList<>();
+
+    @Value("${local.server.port}")
+    int port;
+
+    @Autowired
+    KafkaTemplate<String, Object> objectKafkaTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    List<Client> clients = new ArrayList<>();
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    @AfterEach
+    void closeClients() {
+        clients.forEach(client -> client.webSocket().abort());
+    }
+
+    @Test
+    @DisplayName("2000 клиентов подписаны на префиксы, каждый ключ меняется 10 раз")
+    void test_10() {
+        //given
+        HttpClient httpClient = HttpClient.newHttpClient();
+        URI uri = URI.create("ws://localhost:" + port + "/ws/changes");
+        for (int i = 0; i < CLIENTS; i++) {
+            String prefix = "g" + i % GROUPS + "-";
+            Listener listener = new Listener(prefix);
+            WebSocket webSocket = httpClient.newWebSocketBuilder().buildAsync(uri, listener).join();
+            webSocket.sendText(toJson(SubscriptionDto.builder().prefixes(List.of(prefix)).build()), true).join();
+            clients.add(new Client(webSocket, listener));
+        }
+        // подписка обрабатывается асинхронно, даем серверу ее применить
+        sleep(Duration.ofSeconds(2));
+
+        //when
+        long before = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            CompletableFuture<?>[] futures = new CompletableFuture[KEYS];
+            for (int k = 0; k < KEYS; k++) {
+                futures[k] = objectKafkaTemplate.send("topic-1", key(k), new KafkaMessageDto(value(round, k)));
+            }
+            CompletableFuture.allOf(futures).join();
+        }
+        await().atMost(Duration.ofMinutes(2)).until(() -> clients.stream().allMatch(client -> client.listener().isConverged()));
+        long duration = System.nanoTime() - before;
+
+        //then
+        long produced = (long) KEYS * ROUNDS * CLIENTS / GROUPS;
+        long received = clients.stream().mapToLong(client -> client.listener().received.get()).sum();
+        results.add(format("""
+                                   Клиентов:%s Ключей:%s Изменений на ключ:%s
+                                   Сошлись за %.2f s
+                                   Изменений для подписчиков:%s Доставлено:%s Схлопнуто:%.1f%%""",
+                           CLIENTS, KEYS, ROUNDS,
+                           duration / 1_000_000_000.0,
+                           produced, received, 100.0 * (produced - received) / produced));
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String key(int k) {
+        return "g" + k % GROUPS + "-" + k;
+    }
+
+    private static String value(int round, int k) {
+        return round + "-" + k;
+    }
+
+    private record Client(WebSocket webSocket, Listener listener) {}
+
+    private class Listener implements WebSocket.Listener {
+
+        private final Map<String, String> lastValues = new ConcurrentHashMap<>();
+        private final Map<String, String> expected = new ConcurrentHashMap<>();
+        private final AtomicLong received = new AtomicLong();
+        private final StringBuilder buffer = new StringBuilder();
+
+        Listener(String prefix) {
+            for (int k = 0; k < KEYS; k++) {
+                if (key(k).startsWith(prefix)) {
+                    expected.put(key(k), value(ROUNDS - 1, k));
+                }
+            }
+        }
+
+        boolean isConverged() {
+            return lastValues.equals(expected);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                try {
+                    ChangeDto change = objectMapper.readValue(buffer.toString(), ChangeDto.class);
+                    lastValues.put(change.getKey(), change.getValue());
+                    received.incrementAndGet();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    buffer.setLength(0);
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+    }
+}
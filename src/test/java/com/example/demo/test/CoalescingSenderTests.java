@@ -0,0 +1,85 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.TopicConfigBuilder;
+import com.example.demo.TopicScanner;
+import com.example.demo.kafka.CoalescingSender;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+import static org.apache.kafka.common.config.TopicConfig.CLEANUP_POLICY_COMPACT;
+
+@DisplayName("Схлопывание значений по ключу на стороне продюсера")
+class CoalescingSenderTests extends AbstractKafkaTest {
+
+    static final int MSG_COUNT = 5_000;
+    static final Duration WINDOW = Duration.ofMillis(100);
+    static final int MAX_KEYS = 1_000;
+
+    static List<String> results = new ArrayList<>();
+
+    TopicScanner topicScanner = new TopicScanner(kafka.getBootstrapServers());
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    @Test
+    @DisplayName("Компактный топик, 0% дублирующих ключей")
+    void test_10() {
+        sendCoalesced("coalescing1", 0);
+    }
+
+    @Test
+    @DisplayName("Компактный топик, 50% дублирующих ключей")
+    void test_20() {
+        sendCoalesced("coalescing2", 50);
+    }
+
+    @Test
+    @DisplayName("Компактный топик, 100% дублирующих ключей")
+    void test_30() {
+        sendCoalesced("coalescing3", 100);
+    }
+
+    private void sendCoalesced(String topicName, int percentage) {
+        //given
+        Map<String, String> config = TopicConfigBuilder.cleanupPolicy(CLEANUP_POLICY_COMPACT).build();
+        NewTopic topic = TopicBuilder.name(topicName).configs(config).build();
+        createTopic(topic);
+
+        List<KafkaRecord> messages = generateKafkaMessages(MSG_COUNT, percentage);
+
+        //when
+        CoalescingSender.Stats stats;
+        long before = System.nanoTime();
+        // JsonSerializer пишет строку в кавычках
+        try (CoalescingSender<String> sender = new CoalescingSender<>(kafkaTemplate, WINDOW, MAX_KEYS,
+                                                                       value -> value.getBytes(StandardCharsets.UTF_8).length + 2)) {
+            messages.forEach(message -> sender.send(topicName, message.key(), message.value()));
+            sender.flush().join();
+            stats = sender.getStats();
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - before);
+        TopicScanner.ScanResult scan = topicScanner.scan(topicName);
+
+        //then
+        results.add(format("""
+                                   Топик:%s Сообщений:%s Дубли:%s%% окно:%sмс max-keys:%s время:%sмс
+                                   Отправлено:%s Не отправлено записей:%s байт:%s, в топике записей:%s байт:%s""",
+                           topicName, MSG_COUNT, percentage, WINDOW.toMillis(), MAX_KEYS, duration.toMillis(),
+                           stats.sent(), stats.coalescedRecords(), stats.coalescedBytes(), scan.records(), scan.bytes()));
+    }
+}
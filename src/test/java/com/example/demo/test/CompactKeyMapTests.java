@@ -0,0 +1,70 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractTest;
+import com.example.demo.state.CompactKeyMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сверяет {@link CompactKeyMap} с {@link HashMap} на случайной последовательности put/get/remove. Пул ключей
+ * смешанный: UUID в нижнем регистре (хранятся long'ами), UUID в верхнем регистре и произвольные строки (хранятся
+ * байтами). Маленькая начальная таблица и пул больше нее дают длинные цепочки коллизий по слоту, расширения
+ * таблицы и обратные сдвиги при удалении через конец массива.
+ */
+@DisplayName("CompactKeyMap: совпадение с HashMap на случайных операциях")
+class CompactKeyMapTests extends AbstractTest {
+
+    static final int OPERATIONS = 200_000;
+
+    @ParameterizedTest(name = "Начальный размер {0}, ключей в пуле {1}, seed {2}")
+    @CsvSource({"0, 50, 1", "0, 2000, 2", "16, 20000, 3", "100000, 500, 4"})
+    void test_10(int expectedSize, int poolSize, long seed) {
+        //given
+        Random random = new Random(seed);
+        List<String> keys = IntStream.range(0, poolSize)
+                .mapToObj(i -> key(i, random))
+                .toList();
+        CompactKeyMap<Integer> actual = new CompactKeyMap<>(expectedSize);
+        Map<String, Integer> expected = new HashMap<>();
+
+        //when
+        for (int i = 0; i < OPERATIONS; i++) {
+            String key = keys.get(random.nextInt(poolSize));
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                assertEquals(expected.put(key, i), actual.put(key, i), "put " + key);
+            } else if (operation < 8) {
+                assertEquals(expected.remove(key), actual.remove(key), "remove " + key);
+            } else {
+                assertEquals(expected.get(key), actual.get(key), "get " + key);
+            }
+            assertEquals(expected.size(), actual.size(), "size после операции " + i);
+        }
+
+        //then
+        Map<String, Integer> iterated = new HashMap<>();
+        actual.forEach((key, value) -> assertEquals(null, iterated.put(key, value), "forEach вернул ключ дважды: " + key));
+        assertEquals(expected, iterated);
+        keys.forEach(key -> assertEquals(expected.get(key), actual.get(key), "get " + key));
+    }
+
+    private static String key(int i, Random random) {
+        UUID uuid = new UUID(random.nextLong(), random.nextLong());
+        return switch (i % 4) {
+            case 0, 1 -> uuid.toString();
+            case 2 -> uuid.toString().toUpperCase(Locale.ROOT);
+            default -> "key-" + i;
+        };
+    }
+}
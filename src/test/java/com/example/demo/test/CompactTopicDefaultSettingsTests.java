@@ -11,7 +11,6 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.kafka.config.TopicBuilder;
 import org.testcontainers.shaded.com.google.common.collect.ArrayListMultimap;
 
-import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -46,10 +45,10 @@ class CompactTopicDefaultSettingsTests extends AbstractKafkaTest {
         createTopic(topic);
 
         //when
-        Duration duration = fillTopicAndGetDuration(topicName, messages);
+        SendMeasurement measurement = fillTopicAndMeasure(topicName, messages);
 
         //then
-        fillStatistics(topicToResultMap, topicName, msgCount, percentage, duration, config);
+        fillStatistics(topicToResultMap, topicName, msgCount, percentage, measurement, config);
     }
 
     @RepeatedTest(REPEAT_NUM)
@@ -68,10 +67,10 @@ class CompactTopicDefaultSettingsTests extends AbstractKafkaTest {
         createTopic(topic);
 
         //when
-        Duration duration = fillTopicAndGetDuration(topicName, messages);
+        SendMeasurement measurement = fillTopicAndMeasure(topicName, messages);
 
         //then
-        fillStatistics(topicToResultMap, topicName, msgCount, percentage, duration, config);
+        fillStatistics(topicToResultMap, topicName, msgCount, percentage, measurement, config);
     }
 
     @RepeatedTest(REPEAT_NUM)
@@ -90,9 +89,9 @@ class CompactTopicDefaultSettingsTests extends AbstractKafkaTest {
         createTopic(topic);
 
         //when
-        Duration duration = fillTopicAndGetDuration(topicName, messages);
+        SendMeasurement measurement = fillTopicAndMeasure(topicName, messages);
 
         //then
-        fillStatistics(topicToResultMap, topicName, msgCount, percentage, duration, config);
+        fillStatistics(topicToResultMap, topicName, msgCount, percentage, measurement, config);
     }
 }
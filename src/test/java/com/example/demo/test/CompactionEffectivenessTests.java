@@ -0,0 +1,90 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.CompactionAnalyzer;
+import com.example.demo.CompactionAnalyzer.CompactionReport;
+import com.example.demo.TopicConfigBuilder;
+import com.example.demo.TopicScanner;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static org.apache.kafka.common.config.TopicConfig.CLEANUP_POLICY_COMPACT;
+
+@DisplayName("Время до компакции и доля дублей при разных настройках compacted топика")
+class CompactionEffectivenessTests extends AbstractKafkaTest {
+
+    static final int MSG_COUNT = 5_000;
+    static final int PERCENTAGE = 50;
+    static final int TOMBSTONE_COUNT = 100;
+
+    static List<String> results = new ArrayList<>();
+
+    CompactionAnalyzer compactionAnalyzer = new CompactionAnalyzer(new TopicScanner(kafka.getBootstrapServers()),
+                                                                   Duration.ofSeconds(5), 3, Duration.ofMinutes(3));
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    @Test
+    @DisplayName("Компактный топик 5000:100")
+    void test_10() throws InterruptedException {
+        analyze("compaction1", 5000L, 100L);
+    }
+
+    @Test
+    @DisplayName("Компактный топик 20000:20000")
+    void test_20() throws InterruptedException {
+        analyze("compaction2", 20000L, 20000L);
+    }
+
+    @Test
+    @DisplayName("Компактный топик 60000:100")
+    void test_30() throws InterruptedException {
+        analyze("compaction3", 60000L, 100L);
+    }
+
+    private void analyze(String topicName, long maxCompactionLagMs, long deleteRetentionMs) throws InterruptedException {
+        //given
+        Map<String, String> config = TopicConfigBuilder.cleanupPolicy(CLEANUP_POLICY_COMPACT)
+                .setMaxCompactionLagMs(maxCompactionLagMs)
+                .setDeleteRetentionMs(deleteRetentionMs)
+                .setSegmentMs(1000L)
+                .setMinCleanableDirtyRatio(0.01)
+                .build();
+        NewTopic topic = TopicBuilder.name(topicName).configs(config).build();
+        createTopic(topic);
+
+        List<KafkaRecord> messages = generateKafkaMessages(MSG_COUNT, PERCENTAGE);
+        List<KafkaRecord> tombstones = messages.stream()
+                .limit(TOMBSTONE_COUNT)
+                .map(message -> new KafkaRecord(message.key(), null))
+                .toList();
+        fillTopicAndMeasure(topicName, messages);
+        fillTopicAndMeasure(topicName, tombstones);
+        long writeEnd = System.nanoTime();
+
+        //when
+        AtomicInteger rolls = new AtomicInteger();
+        CompactionReport report = compactionAnalyzer.analyze(topicName, writeEnd, () -> fillTopicAndMeasure(
+                topicName, List.of(new KafkaRecord("segment-roll", Integer.toString(rolls.incrementAndGet())))));
+
+        //then
+        results.add(format("""
+                                   Топик:%s mcl:%s dr:%s Сообщений:%s Дубли:%s%% Tombstone:%s
+                                   %s""",
+                           topicName, maxCompactionLagMs, deleteRetentionMs, MSG_COUNT, PERCENTAGE, TOMBSTONE_COUNT, report));
+    }
+}
@@ -9,7 +9,6 @@ import org.junit.jupiter.api.RepeatedTest;
 import org.springframework.kafka.config.TopicBuilder;
 import org.testcontainers.shaded.com.google.common.collect.ArrayListMultimap;
 
-import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -44,10 +43,10 @@ class DeletedTopicDefaultSettingsTests extends AbstractKafkaTest {
         createTopic(topic);
 
         //when
-        Duration duration = fillTopicAndGetDuration(topicName, messages);
+        SendMeasurement measurement = fillTopicAndMeasure(topicName, messages);
 
         //then
-        fillStatistics(topicToResultMap, topicName, msgCount, percentage, duration, config);
+        fillStatistics(topicToResultMap, topicName, msgCount, percentage, measurement, config);
     }
 
     @RepeatedTest(REPEAT_NUM)
@@ -66,10 +65,10 @@ class DeletedTopicDefaultSettingsTests extends AbstractKafkaTest {
         createTopic(topic);
 
         //when
-        Duration duration = fillTopicAndGetDuration(topicName, messages);
+        SendMeasurement measurement = fillTopicAndMeasure(topicName, messages);
 
         //then
-        fillStatistics(topicToResultMap, topicName, msgCount, percentage, duration, config);
+        fillStatistics(topicToResultMap, topicName, msgCount, percentage, measurement, config);
     }
 
     @RepeatedTest(REPEAT_NUM)
@@ -88,9 +87,9 @@ class DeletedTopicDefaultSettingsTests extends AbstractKafkaTest {
         createTopic(topic);
 
         //when
-        Duration duration = fillTopicAndGetDuration(topicName, messages);
+        SendMeasurement measurement = fillTopicAndMeasure(topicName, messages);
 
         //then
-        fillStatistics(topicToResultMap, topicName, msgCount, percentage, duration, config);
+        fillStatistics(topicToResultMap, topicName, msgCount, percentage, measurement, config);
     }
 }
@@ -0,0 +1,241 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.LatencyHistogram;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.state.IndexedLookup;
+import com.example.demo.state.KeyOffsetIndex;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static java.lang.String.format;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"state.index.enabled=true", "state.index.path=target/test-state/topic-1.index"})
+@DisplayName("Индекс ключ -> оффсет: память на ключ и задержка чтения значения по ключу")
+class KeyOffsetIndexTests extends AbstractKafkaTest {
+
+    static final int INDEX_KEYS = 1_000_000;
+    static final int TOPIC_KEYS = 10_000;
+    static final int LOOKUPS = 1_000;
+
+    static List<String> results = new ArrayList<>();
+
+    @Autowired
+    KafkaTemplate<String, Object> objectKafkaTemplate;
+
+    @Autowired
+    KeyOffsetIndex index;
+
+    @Autowired
+    IndexedLookup indexedLookup;
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    @Test
+    @DisplayName("Индекс на миллион ключей: размер файла, куча и время поиска")
+    void test_10() throws Exception {
+        //given
+        Path path = Files.createTempFile("key-offset-index", ".index");
+        Files.delete(path);
+        List<String> keys = new ArrayList<>(INDEX_KEYS);
+        for (int i = 0; i < INDEX_KEYS; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+
+        //when
+        long heapBefore = usedHeap();
+        LatencyHistogram latencies = new LatencyHistogram();
+        long fileBytes;
+        try (KeyOffsetIndex standalone = new KeyOffsetIndex(path, 1024)) {
+            for (int i = 0; i < INDEX_KEYS; i++) {
+                standalone.put(keys.get(i), i % 3, i);
+            }
+            long heapAfter = usedHeap();
+            Random random = new Random();
+            for (int i = 0; i < LOOKUPS * 100; i++) {
+                int k = random.nextInt(INDEX_KEYS);
+                long before = System.nanoTime();
+                KeyOffsetIndex.Position position = standalone.get(keys.get(k));
+                latencies.record(System.nanoTime() - before);
+                assertEquals(new KeyOffsetIndex.Position(k % 3, k), position);
+            }
+            fileBytes = standalone.fileBytes();
+
+            //then
+            // после нескольких расширений таблицы каждый ключ указывает на свою позицию
+            assertEquals(INDEX_KEYS, standalone.size());
+            assertTrue(standalone.capacity() > 1024);
+            for (int i = 0; i < INDEX_KEYS; i++) {
+                assertEquals(new KeyOffsetIndex.Position(i % 3, i), standalone.get(keys.get(i)), keys.get(i));
+            }
+            results.add(format("""
+                                       Индекс на %s ключей: файл %s Мб (%.1f байт на ключ), прирост кучи %s Мб
+                                       Поиск в индексе, нс p50:%s p99:%s max:%s""",
+                               INDEX_KEYS, fileBytes / 1024 / 1024, (double) fileBytes / INDEX_KEYS,
+                               Math.max(0, heapAfter - heapBefore) / 1024 / 1024,
+                               latencies.getValueAtPercentile(50).toNanos(),
+                               latencies.getValueAtPercentile(99).toNanos(),
+                               latencies.getMax().toNanos()));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    @DisplayName("Чтение значения по ключу из кафки по индексу: промах и попадание в кэш")
+    void test_20() {
+        //given
+        List<String> keys = new ArrayList<>(TOPIC_KEYS);
+        CompletableFuture<?>[] futures = new CompletableFuture[TOPIC_KEYS];
+        for (int i = 0; i < TOPIC_KEYS; i++) {
+            String key = UUID.randomUUID().toString();
+            keys.add(key);
+            futures[i] = objectKafkaTemplate.send("topic-1", key, new KafkaMessageDto(Integer.toString(i)));
+        }
+        CompletableFuture.allOf(futures).join();
+        await().atMost(Duration.ofMinutes(1)).until(() -> keys.stream().allMatch(key -> index.get(key) != null));
+
+        //when
+        LatencyHistogram misses = lookup(keys);
+        LatencyHistogram hits = lookup(keys);
+
+        //then
+        results.add(format("""
+                                   Чтение по ключу через индекс, %s ключей, мс
+                                   Из кафки p50:%.3f p99:%.3f max:%.3f
+                                   Из кэша  p50:%.3f p99:%.3f max:%.3f""",
+                           LOOKUPS,
+                           toMillis(misses.getValueAtPercentile(50)), toMillis(misses.getValueAtPercentile(99)), toMillis(misses.getMax()),
+                           toMillis(hits.getValueAtPercentile(50)), toMillis(hits.getValueAtPercentile(99)), toMillis(hits.getMax())));
+    }
+
+    @Test
+    @DisplayName("Удаление и повторная запись ключа, в том числе через расширение таблицы")
+    void test_30() throws Exception {
+        //given
+        Path path = Files.createTempFile("key-offset-index", ".index");
+        Files.delete(path);
+        List<String> keys = randomKeys(INDEX_KEYS / 100);
+
+        try (KeyOffsetIndex standalone = new KeyOffsetIndex(path, 16)) {
+            for (int i = 0; i < keys.size(); i++) {
+                standalone.put(keys.get(i), 1, i);
+            }
+
+            //when
+            for (int i = 0; i < keys.size(); i += 2) {
+                standalone.remove(keys.get(i));
+            }
+            long sizeAfterRemove = standalone.size();
+            List<String> newKeys = randomKeys(keys.size());
+            for (int i = 0; i < newKeys.size(); i++) {
+                standalone.put(newKeys.get(i), 2, i);
+            }
+            for (int i = 0; i < keys.size(); i += 4) {
+                standalone.put(keys.get(i), 3, i);
+            }
+
+            //then
+            assertEquals(keys.size() / 2, sizeAfterRemove);
+            assertEquals(keys.size() / 2 + keys.size() / 4 + newKeys.size(), standalone.size());
+            for (int i = 0; i < keys.size(); i++) {
+                KeyOffsetIndex.Position expected = i % 4 == 0 ? new KeyOffsetIndex.Position(3, i)
+                        : i % 2 == 0 ? null
+                        : new KeyOffsetIndex.Position(1, i);
+                assertEquals(expected, standalone.get(keys.get(i)), keys.get(i));
+            }
+            for (int i = 0; i < newKeys.size(); i++) {
+                assertEquals(new KeyOffsetIndex.Position(2, i), standalone.get(newKeys.get(i)), newKeys.get(i));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    @DisplayName("Повторное открытие файла индекса: тот же размер, емкость и позиции")
+    void test_40() throws Exception {
+        //given
+        Path path = Files.createTempFile("key-offset-index", ".index");
+        Files.delete(path);
+        List<String> keys = randomKeys(INDEX_KEYS / 100);
+        long size;
+        long capacity;
+        try (KeyOffsetIndex standalone = new KeyOffsetIndex(path, 16)) {
+            for (int i = 0; i < keys.size(); i++) {
+                standalone.put(keys.get(i), i % 5, i);
+            }
+            for (int i = 0; i < keys.size(); i += 3) {
+                standalone.remove(keys.get(i));
+            }
+            size = standalone.size();
+            capacity = standalone.capacity();
+        }
+
+        //when
+        try (KeyOffsetIndex reopened = new KeyOffsetIndex(path, 16)) {
+
+            //then
+            assertFalse(reopened.isCreated());
+            assertEquals(size, reopened.size());
+            assertEquals(capacity, reopened.capacity());
+            for (int i = 0; i < keys.size(); i++) {
+                KeyOffsetIndex.Position expected = i % 3 == 0 ? null : new KeyOffsetIndex.Position(i % 5, i);
+                assertEquals(expected, reopened.get(keys.get(i)), keys.get(i));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static List<String> randomKeys(int count) {
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    private LatencyHistogram lookup(List<String> keys) {
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (int i = 0; i < LOOKUPS; i++) {
+            String key = keys.get(i);
+            long before = System.nanoTime();
+            Object value = indexedLookup.get(key).orElseThrow();
+            latencies.record(System.nanoTime() - before);
+            assertEquals(Integer.toString(i), ((KafkaMessageDto) value).getValue());
+        }
+        return latencies;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double toMillis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.TopicConfigBuilder;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.kafka.ListenerOne;
+import com.example.demo.kafka.ListenerOneBatch;
+import com.example.demo.state.BootstrapTracker;
+import com.example.demo.state.StateSnapshotter;
+import com.example.demo.state.TopicStateStore;
+import com.example.demo.state.TopicStateUpdater;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.RepeatedTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.config.AbstractKafkaListenerEndpoint;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
+import org.springframework.kafka.config.MultiMethodKafkaListenerEndpoint;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.shaded.com.google.common.collect.ArrayListMultimap;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static org.apache.kafka.common.config.TopicConfig.CLEANUP_POLICY_COMPACT;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнивает настоящие {@link ListenerOne} (диспетчеризация {@link KafkaHandler} по типу payload) и
+ * {@link ListenerOneBatch} вместе с {@link TopicStateUpdater}. Сами листнеры слушают topic-1, который в тестах
+ * делят контексты разных тестовых классов, поэтому здесь их экземпляры подключаются к отдельному топику и
+ * группе через те же эндпоинты, что строит {@code @KafkaListener}, и пишут в собственное {@link TopicStateStore}.
+ */
+@DisplayName("Сравнение скорости обработки записей листнером по одной и пачками")
+class ListenerDispatchTests extends AbstractKafkaTest {
+
+    static final int REPEAT_NUM = 5;
+    static final int MSG_COUNT = 50_000;
+    static final int PARTITIONS = 3;
+
+    static ArrayListMultimap<String, Double> modeToThroughputs = ArrayListMultimap.create();
+
+    @Autowired
+    ConcurrentKafkaListenerContainerFactory<?, ?> kafkaListenerContainerFactory;
+
+    @Autowired
+    KafkaTemplate<String, Object> objectKafkaTemplate;
+
+    @Autowired
+    ConsumerFactory<?, ?> consumerFactory;
+
+    @Autowired
+    StateSnapshotter snapshotter;
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        modeToThroughputs.asMap().forEach((mode, throughputs) -> {
+            double avg = throughputs.stream().mapToDouble(value -> value).average().orElse(0);
+            System.out.println(format("Режим:%s Повторы:%s Сообщений:%s Avg:%.0f msg/s Все:%s",
+                                      mode, throughputs.size(), MSG_COUNT, avg, throughputs));
+        });
+    }
+
+    @RepeatedTest(REPEAT_NUM)
+    @DisplayName("ListenerOne: по одной записи через @KafkaHandler")
+    void test_10() throws Exception {
+        //given
+        String topicName = "dispatch-single";
+        fillTopic(topicName);
+        Measurement measurement = new Measurement();
+        ListenerOne listener = new ListenerOne(createStateUpdater(measurement));
+
+        List<Method> handlers = Arrays.stream(ListenerOne.class.getMethods())
+                .filter(method -> method.isAnnotationPresent(KafkaHandler.class))
+                .toList();
+        Method defaultHandler = handlers.stream()
+                .filter(method -> method.getAnnotation(KafkaHandler.class).isDefault())
+                .findFirst()
+                .orElseThrow();
+        MultiMethodKafkaListenerEndpoint<Object, Object> endpoint = new MultiMethodKafkaListenerEndpoint<>(handlers, defaultHandler, listener);
+
+        //when
+        double throughput = consume(topicName, endpoint, measurement);
+
+        //then
+        modeToThroughputs.put("single", throughput);
+    }
+
+    @RepeatedTest(REPEAT_NUM)
+    @DisplayName("ListenerOneBatch: пачками по результату poll()")
+    void test_20() throws Exception {
+        //given
+        String topicName = "dispatch-batch";
+        fillTopic(topicName);
+        Measurement measurement = new Measurement();
+        ListenerOneBatch listener = new ListenerOneBatch(createStateUpdater(measurement));
+
+        MethodKafkaListenerEndpoint<Object, Object> endpoint = new MethodKafkaListenerEndpoint<>();
+        endpoint.setBean(listener);
+        endpoint.setMethod(ListenerOneBatch.class.getMethod("batchHandler", List.class));
+        endpoint.setBatchListener(true);
+
+        //when
+        double throughput = consume(topicName, endpoint, measurement);
+
+        //then
+        modeToThroughputs.put("batch", throughput);
+    }
+
+    private void fillTopic(String topicName) {
+        Map<String, String> config = TopicConfigBuilder.cleanupPolicy(CLEANUP_POLICY_COMPACT).build();
+        NewTopic topic = TopicBuilder.name(topicName).partitions(PARTITIONS).configs(config).build();
+        createTopic(topic);
+
+        CompletableFuture<?>[] futures = generateKafkaMessages(MSG_COUNT, 0).stream()
+                .map(message -> objectKafkaTemplate.send(topicName, message.key(), new KafkaMessageDto(message.value())))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * Свое состояние на каждый замер, без сброса оффсетов и снапшотов: новая группа и так читает с начала.
+     */
+    private TopicStateUpdater createStateUpdater(Measurement measurement) {
+        TopicStateStore stateStore = new TopicStateStore();
+        stateStore.addChangeListener((key, value) -> measurement.onRecords(1));
+        TopicStateUpdater stateUpdater = new TopicStateUpdater(stateStore, snapshotter, new BootstrapTracker(consumerFactory, stateStore));
+        ReflectionTestUtils.setField(stateUpdater, "isNeedResetKafkaReadOffset", false);
+        return stateUpdater;
+    }
+
+    /**
+     * Время считается от первой примененной записи, что бы не учитывать подключение к группе и ребалансировку.
+     */
+    private double consume(String topicName, AbstractKafkaListenerEndpoint<Object, Object> endpoint, Measurement measurement) throws InterruptedException {
+        DefaultMessageHandlerMethodFactory handlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        // как у @KafkaListener - в том числе для @Header(RECEIVED_TIMESTAMP) Instant
+        handlerMethodFactory.setConversionService(new DefaultFormattingConversionService());
+        handlerMethodFactory.afterPropertiesSet();
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        String groupId = UUID.randomUUID().toString();
+        endpoint.setId(topicName + "-" + groupId);
+        endpoint.setGroupId(groupId);
+        endpoint.setTopics(topicName);
+        endpoint.setConcurrency(PARTITIONS);
+        endpoint.setConsumerProperties(consumerProperties);
+        if (endpoint instanceof MethodKafkaListenerEndpoint<Object, Object> methodEndpoint) {
+            methodEndpoint.setMessageHandlerMethodFactory(handlerMethodFactory);
+        }
+
+        MessageListenerContainer container = kafkaListenerContainerFactory.createListenerContainer(endpoint);
+        container.start();
+        try {
+            assertTrue(measurement.done.await(2, TimeUnit.MINUTES), "Не дождались вычитывания всех записей");
+        } finally {
+            container.stop();
+        }
+        return measurement.throughput();
+    }
+
+    static class Measurement {
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong firstAt = new AtomicLong();
+        final AtomicLong lastAt = new AtomicLong();
+
+        void onRecords(int count) {
+            long now = System.nanoTime();
+            firstAt.compareAndSet(0, now);
+            if (received.addAndGet(count) >= MSG_COUNT) {
+                lastAt.compareAndSet(0, now);
+                done.countDown();
+            }
+        }
+
+        double throughput() {
+            return received.get() * 1_000_000_000.0 / Math.max(1, lastAt.get() - firstAt.get());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractPingUnderLoadTest;
+import com.example.demo.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = "virtual-threads.enabled=false")
+@DisplayName("Tomcat на пуле из server.tomcat.threads.max потоков")
+class PlatformThreadsPingTests extends AbstractPingUnderLoadTest {
+
+    /**
+     * /api/sleep больше, чем потоков в пуле, поэтому первый /api/ping стоит в очереди за ними.
+     */
+    @Override
+    protected void assertPingLatency(LatencyHistogram latencies) {
+        Duration max = latencies.getMax();
+        assertTrue(max.toMillis() >= SLEEP_MS / 2, "/api/ping не ждал освобождения потока: max " + max.toMillis() + "мс");
+    }
+}
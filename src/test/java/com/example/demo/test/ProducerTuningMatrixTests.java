@@ -0,0 +1,151 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.BenchmarkReportWriter;
+import com.example.demo.TopicConfigBuilder;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static org.apache.kafka.common.config.TopicConfig.CLEANUP_POLICY_COMPACT;
+import static org.apache.kafka.common.config.TopicConfig.CLEANUP_POLICY_DELETE;
+
+/**
+ * Матрица: настройки топика (политика очистки, max.compaction.lag.ms, delete.retention.ms) x доля дублирующих
+ * ключей x настройки продюсера. Настройки продюсера меняются по одной относительно базовых (дефолты кафки),
+ * иначе полный перебор занял бы часы. Результаты пишутся в target/benchmark-reports в JSON и CSV.
+ */
+@DisplayName("Матрица настроек топика и продюсера")
+class ProducerTuningMatrixTests extends AbstractKafkaTest {
+
+    static final int REPEAT_NUM = 3;
+    static final int MSG_COUNT = 5_000;
+
+    static final List<TopicSettings> TOPIC_SETTINGS = List.of(
+            new TopicSettings(CLEANUP_POLICY_COMPACT, 5000L, 100L),
+            new TopicSettings(CLEANUP_POLICY_COMPACT, 20000L, 20000L),
+            new TopicSettings(CLEANUP_POLICY_DELETE, 5000L, 100L),
+            new TopicSettings(CLEANUP_POLICY_DELETE, 20000L, 20000L));
+
+    static final List<Integer> PERCENTAGES = List.of(0, 50, 100);
+
+    static final ProducerSettings BASELINE = new ProducerSettings(16384, 0, "all", "none", 5);
+
+    static final List<ProducerSettings> PRODUCER_SETTINGS = List.of(
+            BASELINE,
+            BASELINE.withBatchSize(65536),
+            BASELINE.withLingerMs(5),
+            BASELINE.withLingerMs(20),
+            BASELINE.withAcks("1"),
+            BASELINE.withCompressionType("lz4"),
+            BASELINE.withCompressionType("zstd"),
+            BASELINE.withMaxInFlight(1));
+
+    static List<ReportRow> reportRows = Collections.synchronizedList(new ArrayList<>());
+
+    public record TopicSettings(String cleanupPolicy, long maxCompactionLagMs, long deleteRetentionMs) {
+
+        Map<String, String> toConfig() {
+            return TopicConfigBuilder.cleanupPolicy(cleanupPolicy)
+                    .setMaxCompactionLagMs(maxCompactionLagMs)
+                    .setDeleteRetentionMs(deleteRetentionMs)
+                    .build();
+        }
+    }
+
+    public record ProducerSettings(int batchSize, int lingerMs, String acks, String compressionType, int maxInFlight) {
+
+        Map<String, Object> toConfig() {
+            return Map.of(ProducerConfig.BATCH_SIZE_CONFIG, batchSize,
+                          ProducerConfig.LINGER_MS_CONFIG, lingerMs,
+                          ProducerConfig.ACKS_CONFIG, acks,
+                          ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType,
+                          ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, maxInFlight);
+        }
+
+        ProducerSettings withBatchSize(int batchSize) {
+            return new ProducerSettings(batchSize, lingerMs, acks, compressionType, maxInFlight);
+        }
+
+        ProducerSettings withLingerMs(int lingerMs) {
+            return new ProducerSettings(batchSize, lingerMs, acks, compressionType, maxInFlight);
+        }
+
+        ProducerSettings withAcks(String acks) {
+            return new ProducerSettings(batchSize, lingerMs, acks, compressionType, maxInFlight);
+        }
+
+        ProducerSettings withCompressionType(String compressionType) {
+            return new ProducerSettings(batchSize, lingerMs, acks, compressionType, maxInFlight);
+        }
+
+        ProducerSettings withMaxInFlight(int maxInFlight) {
+            return new ProducerSettings(batchSize, lingerMs, acks, compressionType, maxInFlight);
+        }
+    }
+
+    public record ReportRow(String cleanupPolicy, long maxCompactionLagMs, long deleteRetentionMs, int percentage,
+                            int batchSize, int lingerMs, String acks, String compressionType, int maxInFlight,
+                            int msgCount, int repeats,
+                            double minThroughput, double maxThroughput, double avgThroughput,
+                            double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs) {}
+
+    @AfterAll
+    public static void afterAll() {
+        Path report = new BenchmarkReportWriter().write("producer-tuning-matrix", reportRows);
+        System.out.println("----------------------------");
+        System.out.println(format("Отчет: %s (+ .csv), строк: %s", report.toAbsolutePath(), reportRows.size()));
+    }
+
+    static Stream<Arguments> matrix() {
+        return TOPIC_SETTINGS.stream()
+                .flatMap(topicSettings -> PERCENTAGES.stream()
+                        .flatMap(percentage -> PRODUCER_SETTINGS.stream()
+                                .map(producerSettings -> Arguments.of(topicSettings, percentage, producerSettings))));
+    }
+
+    @ParameterizedTest(name = "{0}, дубли {1}%, {2}")
+    @MethodSource("matrix")
+    void test_10(TopicSettings topicSettings, int percentage, ProducerSettings producerSettings) {
+        //given
+        String topicName = "matrix-topic";
+        Map<String, String> config = topicSettings.toConfig();
+        KafkaTemplate<String, String> template = new KafkaTemplate<>(kafkaTemplate.getProducerFactory(), producerSettings.toConfig());
+
+        //when
+        List<SendMeasurement> measurements = new ArrayList<>();
+        try {
+            for (int i = 0; i < REPEAT_NUM; i++) {
+                List<KafkaRecord> messages = generateKafkaMessages(MSG_COUNT, percentage);
+                NewTopic topic = TopicBuilder.name(topicName).configs(config).build();
+                createTopic(topic);
+                measurements.add(fillTopicAndMeasure(template, topicName, messages));
+            }
+        } finally {
+            template.destroy();
+        }
+
+        //then
+        MeasurementSummary summary = summarize(measurements);
+        reportRows.add(new ReportRow(topicSettings.cleanupPolicy(), topicSettings.maxCompactionLagMs(), topicSettings.deleteRetentionMs(), percentage,
+                                     producerSettings.batchSize(), producerSettings.lingerMs(), producerSettings.acks(),
+                                     producerSettings.compressionType(), producerSettings.maxInFlight(),
+                                     MSG_COUNT, REPEAT_NUM,
+                                     summary.minThroughput(), summary.maxThroughput(), summary.avgThroughput(),
+                                     summary.p50Ms(), summary.p90Ms(), summary.p99Ms(), summary.p999Ms(), summary.maxMs()));
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Ребаланс: пауза обработки партиций при изменении числа консьюмеров, eager против cooperative")
+class RebalancePauseTests extends AbstractKafkaTest {
+
+    static final int PARTITIONS = 12;
+    static final Duration SESSION_TIMEOUT = Duration.ofSeconds(10);
+    // партиция считается обрабатываемой, если по ней была запись за это время
+    static final Duration ACTIVE_GAP = Duration.ofMillis(300);
+
+    static List<String> results = new ArrayList<>();
+
+    @Autowired
+    KafkaProperties kafkaProperties;
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    /**
+     * eager - RangeAssignor для сравнения, application - ассайнер из spring.kafka.consumer приложения.
+     */
+    @ParameterizedTest(name = "Стратегия {0}, статическое членство {1}")
+    @CsvSource({"eager, false", "application, false", "application, true"})
+    void test_10(String strategy, boolean isStatic) throws Exception {
+        //given
+        String topicName = "rebalance-" + strategy + (isStatic ? "-static" : "");
+        createTopic(TopicBuilder.name(topicName).partitions(PARTITIONS).build());
+        Group group = new Group(topicName, strategy, isStatic);
+        AtomicBoolean isProducing = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> produce(topicName, isProducing), "rebalance-producer");
+        producer.start();
+        try {
+            group.scaleTo(2);
+            group.awaitAllActive();
+
+            //when
+            String label = format("%-11s static:%-5s", strategy, isStatic);
+            results.add(group.measure(label, "2 -> 3 консьюмера", () -> group.scaleTo(3)));
+            if (!strategy.equals("eager")) {
+                // при кооперативном ребалансе отзываются только переезжающие к новому консьюмеру партиции
+                assertTrue(group.revoked.get() < PARTITIONS, "Отозваны все партиции, группа на eager протоколе");
+            }
+            results.add(group.measure(label, "3 -> 4 консьюмера", () -> group.scaleTo(4)));
+            results.add(group.measure(label, "перезапуск консьюмера", () -> group.restart(0)));
+            results.add(group.measure(label, "4 -> 3 консьюмера", () -> group.scaleTo(3)));
+            results.add(group.measure(label, "3 -> 2 консьюмера", () -> group.scaleTo(2)));
+        } finally {
+            //then
+            group.scaleTo(0);
+            isProducing.set(false);
+            producer.join();
+        }
+    }
+
+    /**
+     * Равномерный поток записей во все партиции, чтобы пауза любой партиции была видна по разрыву в обработке.
+     */
+    private void produce(String topicName, AtomicBoolean isProducing) {
+        long i = 0;
+        while (isProducing.get()) {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                kafkaTemplate.send(topicName, partition, Long.toString(i), Long.toString(i));
+            }
+            i++;
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private class Group {
+
+        private final String topicName;
+        private final String groupId;
+        private final String strategy;
+        private final boolean isStatic;
+
+        private final List<Member> members = new ArrayList<>();
+        // партиция -> время последней обработанной записи, System.nanoTime()
+        private final AtomicLongArray lastProcessed = new AtomicLongArray(PARTITIONS);
+        // партиция -> самый длинный разрыв в обработке с начала замера
+        private final AtomicReference<AtomicLongArray> maxGaps = new AtomicReference<>(new AtomicLongArray(PARTITIONS));
+        private final AtomicInteger revoked = new AtomicInteger();
+
+        Group(String topicName, String strategy, boolean isStatic) {
+            this.topicName = topicName;
+            this.groupId = topicName + "-" + UUID.randomUUID();
+            this.strategy = strategy;
+            this.isStatic = isStatic;
+        }
+
+        String measure(String label, String event, Action action) throws Exception {
+            maxGaps.set(new AtomicLongArray(PARTITIONS));
+            revoked.set(0);
+            long before = System.nanoTime();
+            action.run();
+            // кооперативный ребаланс идет в два захода, даем ему начаться, прежде чем ждать восстановления
+            sleep(Duration.ofSeconds(3));
+            awaitAllActive();
+            long duration = System.nanoTime() - before;
+
+            long[] gaps = IntStream.range(0, PARTITIONS).mapToLong(maxGaps.get()::get).toArray();
+            long paused = Arrays.stream(gaps).filter(gap -> gap > ACTIVE_GAP.toNanos()).count();
+            return format("%s %-22s пауза партиции max:%6.0f мс avg:%6.0f мс, на паузе партиций:%2s из %s, отозвано:%3s, восстановление %.1f s",
+                          label, event,
+                          Arrays.stream(gaps).max().orElse(0) / 1_000_000.0,
+                          Arrays.stream(gaps).average().orElse(0) / 1_000_000.0,
+                          paused, PARTITIONS, revoked.get(), duration / 1_000_000_000.0);
+        }
+
+        void awaitAllActive() {
+            await().atMost(SESSION_TIMEOUT.multipliedBy(4))
+                    .pollInterval(Duration.ofMillis(50))
+                    .until(() -> IntStream.range(0, PARTITIONS)
+                            .allMatch(partition -> System.nanoTime() - lastProcessed.get(partition) < ACTIVE_GAP.toNanos()));
+        }
+
+        void scaleTo(int count) throws InterruptedException {
+            while (members.size() < count) {
+                members.add(new Member(members.size()));
+            }
+            while (members.size() > count) {
+                members.remove(members.size() - 1).stop();
+            }
+        }
+
+        void restart(int index) throws InterruptedException {
+            members.get(index).stop();
+            members.set(index, new Member(index));
+        }
+
+        private void onRecord(ConsumerRecord<String, String> record) {
+            long now = System.nanoTime();
+            long previous = lastProcessed.getAndSet(record.partition(), now);
+            if (previous != 0) {
+                maxGaps.get().accumulateAndGet(record.partition(), now - previous, Math::max);
+            }
+        }
+
+        private class Member implements ConsumerRebalanceListener {
+
+            private final KafkaConsumer<String, String> consumer;
+            private final AtomicBoolean isRunning = new AtomicBoolean(true);
+            private final Thread thread;
+
+            Member(int index) {
+                // настройки консьюмеров приложения, в том числе partition.assignment.strategy - замеряем то, что запускается
+                Properties properties = new Properties();
+                properties.putAll(kafkaProperties.buildConsumerProperties());
+                properties.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+                properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+                properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+                properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+                properties.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, (int) SESSION_TIMEOUT.toMillis());
+                if (strategy.equals("eager")) {
+                    properties.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, RangeAssignor.class.getName());
+                }
+                if (isStatic) {
+                    properties.put(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, groupId + "-" + index);
+                }
+                this.consumer = new KafkaConsumer<>(properties);
+                this.thread = new Thread(this::run, "rebalance-consumer-" + index);
+                thread.start();
+            }
+
+            private void run() {
+                try {
+                    consumer.subscribe(List.of(topicName), this);
+                    while (isRunning.get()) {
+                        consumer.poll(Duration.ofMillis(100)).forEach(Group.this::onRecord);
+                    }
+                } catch (WakeupException e) {
+                    //остановка консьюмера
+                } finally {
+                    consumer.close();
+                }
+            }
+
+            void stop() throws InterruptedException {
+                isRunning.set(false);
+                consumer.wakeup();
+                thread.join();
+            }
+
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                revoked.addAndGet(partitions.size());
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void run() throws Exception;
+    }
+}
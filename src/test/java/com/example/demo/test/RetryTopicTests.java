@@ -0,0 +1,60 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractIntegrationTest;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.kafka.ListenerThree;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static java.lang.String.format;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Неблокирующие повторы topic-3: ядовитая запись не задерживает записи за ней")
+class RetryTopicTests extends AbstractIntegrationTest {
+
+    static final int MSG_COUNT = 5_000;
+
+    @Autowired
+    KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Ядовитая запись уходит в DLT после всех попыток, здоровые записи за ней обрабатываются сразу")
+    void test_10() {
+        //given
+        double processedBefore = count("processed");
+        double deadLetteredBefore = count("dead-letter");
+
+        //when
+        long before = System.nanoTime();
+        kafkaTemplate.send(ListenerThree.TOPIC, UUID.randomUUID().toString(), new KafkaMessageDto(ListenerThree.POISON_VALUE));
+        for (int i = 0; i < MSG_COUNT; i++) {
+            kafkaTemplate.send(ListenerThree.TOPIC, UUID.randomUUID().toString(), new KafkaMessageDto("some-string"));
+        }
+        kafkaTemplate.flush();
+
+        await().atMost(Duration.ofMinutes(1)).until(() -> count("processed") - processedBefore >= MSG_COUNT);
+        Duration healthy = Duration.ofNanos(System.nanoTime() - before);
+        await().atMost(Duration.ofMinutes(1)).until(() -> count("dead-letter") - deadLetteredBefore >= 1);
+        Duration poison = Duration.ofNanos(System.nanoTime() - before);
+
+        //then
+        System.out.println("----------------------------");
+        System.out.println(format("Здоровых записей:%s обработаны за:%sмс (%.0f msg/s), ядовитая запись в DLT через:%sмс",
+                                  MSG_COUNT, healthy.toMillis(), MSG_COUNT * 1000.0 / Math.max(1, healthy.toMillis()), poison.toMillis()));
+        assertTrue(healthy.compareTo(poison) < 0, "Здоровые записи ждали, пока закончатся повторы ядовитой");
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("kafka.listener.records", "topic", ListenerThree.TOPIC, "outcome", outcome).count();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.state.BootstrapTracker;
+import com.example.demo.state.StateSnapshotter;
+import com.example.demo.state.TopicStateStore;
+import com.example.demo.state.TopicStateUpdater;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Проверяет {@link TopicStateUpdater} без листнера: партиция, отозванная при ребалансе и вернувшаяся в пределах
+ * {@code state.rebalance.revoked-retention-ms}, продолжает чтение с оффсета из памяти, а не вычитывает лог заново.
+ * Снапшоты в тестовом профиле выключены, поэтому без состояния в памяти чтение идет с начала.
+ */
+@DisplayName("Ребаланс: сохранение состояния отозванной партиции в пределах окна удержания")
+class RevokedPartitionRetentionTests extends AbstractKafkaTest {
+
+    static final String TOPIC = "revoked-retention-test";
+    static final int KEYS_PER_PARTITION = 10;
+    static final long RETENTION_MS = 500;
+
+    static final TopicPartition PARTITION_0 = new TopicPartition(TOPIC, 0);
+    static final TopicPartition PARTITION_1 = new TopicPartition(TOPIC, 1);
+
+    @Autowired
+    ConsumerFactory<?, ?> consumerFactory;
+
+    @Autowired
+    StateSnapshotter snapshotter;
+
+    @Mock
+    ConsumerSeekCallback callback;
+
+    @Test
+    @DisplayName("Вернувшаяся в окне партиция сохраняет ключи и продолжает с оффсета в памяти, не вернувшаяся очищается")
+    void test_10() throws Exception {
+        //given
+        createTopic(TopicBuilder.name(TOPIC).partitions(2).build());
+        TopicStateStore stateStore = new TopicStateStore();
+        TopicStateUpdater stateUpdater = createStateUpdater(stateStore);
+
+        stateUpdater.onPartitionsAssigned(Map.of(PARTITION_0, 0L, PARTITION_1, 0L), callback);
+        verify(callback).seekToBeginning(TOPIC, 0);
+        verify(callback).seekToBeginning(TOPIC, 1);
+        fillPartition(stateUpdater, 0);
+        fillPartition(stateUpdater, 1);
+
+        //when
+        stateUpdater.onPartitionsRevoked(List.of(PARTITION_0, PARTITION_1));
+        stateUpdater.onPartitionsAssigned(Map.of(PARTITION_0, 0L), callback);
+        Thread.sleep(RETENTION_MS * 2);
+        stateUpdater.dropRevoked();
+
+        //then
+        verify(callback).seek(TOPIC, 0, KEYS_PER_PARTITION);
+        assertEquals(Optional.of((long) KEYS_PER_PARTITION), stateStore.nextOffset(0));
+        assertEquals(Optional.empty(), stateStore.nextOffset(1));
+        assertEquals(KEYS_PER_PARTITION, stateStore.count());
+        for (int i = 0; i < KEYS_PER_PARTITION; i++) {
+            assertTrue(stateStore.get(key(0, i)).isPresent(), "Ключ вернувшейся партиции пропал: " + key(0, i));
+            assertTrue(stateStore.get(key(1, i)).isEmpty(), "Ключ не вернувшейся партиции остался: " + key(1, i));
+        }
+    }
+
+    @Test
+    @DisplayName("Партиция, вернувшаяся после окна удержания, вычитывается с начала")
+    void test_20() throws Exception {
+        //given
+        createTopic(TopicBuilder.name(TOPIC).partitions(2).build());
+        TopicStateStore stateStore = new TopicStateStore();
+        TopicStateUpdater stateUpdater = createStateUpdater(stateStore);
+
+        stateUpdater.onPartitionsAssigned(Map.of(PARTITION_1, 0L), callback);
+        fillPartition(stateUpdater, 1);
+        stateUpdater.onPartitionsRevoked(List.of(PARTITION_1));
+        Thread.sleep(RETENTION_MS * 2);
+        stateUpdater.dropRevoked();
+
+        //when
+        stateUpdater.onPartitionsAssigned(Map.of(PARTITION_1, 0L), callback);
+
+        //then
+        verify(callback, never()).seek(anyString(), anyInt(), anyLong());
+        verify(callback, times(2)).seekToBeginning(TOPIC, 1);
+        assertEquals(0, stateStore.count());
+    }
+
+    private TopicStateUpdater createStateUpdater(TopicStateStore stateStore) {
+        TopicStateUpdater stateUpdater = new TopicStateUpdater(stateStore, snapshotter, new BootstrapTracker(consumerFactory, stateStore));
+        ReflectionTestUtils.setField(stateUpdater, "isNeedResetKafkaReadOffset", true);
+        ReflectionTestUtils.setField(stateUpdater, "revokedRetentionMs", RETENTION_MS);
+        return stateUpdater;
+    }
+
+    private static void fillPartition(TopicStateUpdater stateUpdater, int partition) {
+        for (int i = 0; i < KEYS_PER_PARTITION; i++) {
+            stateUpdater.put(TOPIC, partition, i, key(partition, i), new KafkaMessageDto(Integer.toString(i)));
+        }
+    }
+
+    private static String key(int partition, int i) {
+        return partition + "-" + i;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractTest;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.serde.FormatDetectingDeserializer;
+import com.example.demo.serde.FormatSelectingSerializer;
+import com.example.demo.serde.LocalSchemaRegistry;
+import com.example.demo.serde.Schema;
+import com.example.demo.serde.SchemaBinaryCodec;
+import com.example.demo.serde.ValueFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.demo.serde.Schema.FieldType.LONG;
+import static com.example.demo.serde.Schema.FieldType.STRING;
+import static com.example.demo.serde.Schema.field;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Бинарный формат по схеме: кодирование и чтение обратно")
+class SchemaBinaryCodecTests extends AbstractTest {
+
+    // id больше 127 - varint идентификатора схемы занимает два байта
+    static final int SCHEMA_ID = 300;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SampleDto {
+
+        private String name;
+        private Long number;
+    }
+
+    static final LocalSchemaRegistry REGISTRY = new LocalSchemaRegistry(List.of(
+            new Schema<>(SCHEMA_ID, SampleDto.class, SampleDto::new, List.of(
+                    field("name", STRING, SampleDto::getName, (dto, value) -> dto.setName((String) value)),
+                    field("number", LONG, SampleDto::getNumber, (dto, value) -> dto.setNumber((Long) value))))));
+
+    SchemaBinaryCodec codec = new SchemaBinaryCodec(REGISTRY);
+
+    @ParameterizedTest(name = "LONG {0}")
+    @ValueSource(longs = {0, 1, -1, 63, -64, 64, -65, 1L << 35, -(1L << 35), Long.MAX_VALUE, Long.MIN_VALUE})
+    @DisplayName("LONG в zigzag varint: отрицательные и большие значения")
+    void test_10(long number) {
+        //given
+        SampleDto dto = new SampleDto("x", number);
+
+        //when
+        Object decoded = codec.decode(codec.encode(dto));
+
+        //then
+        assertEquals(dto, decoded);
+    }
+
+    @ParameterizedTest(name = "STRING длиной {0}")
+    @ValueSource(ints = {0, 1, 126, 127, 128, 20_000})
+    @DisplayName("STRING с длиной в одно-, двух- и трехбайтовом varint")
+    void test_20(int length) {
+        //given
+        SampleDto dto = new SampleDto("я".repeat(length), 42L);
+
+        //when
+        Object decoded = codec.decode(codec.encode(dto));
+
+        //then
+        assertEquals(dto, decoded);
+    }
+
+    @Test
+    @DisplayName("null в STRING и LONG отличается от пустой строки и нуля")
+    void test_30() {
+        //given
+        SampleDto nulls = new SampleDto(null, null);
+        SampleDto empty = new SampleDto("", 0L);
+
+        //when
+        Object decodedNulls = codec.decode(codec.encode(nulls));
+        Object decodedEmpty = codec.decode(codec.encode(empty));
+
+        //then
+        assertEquals(nulls, decodedNulls);
+        assertEquals(empty, decodedEmpty);
+    }
+
+    @Test
+    @DisplayName("Неизвестный id схемы")
+    void test_40() {
+        //given
+        byte[] data = new SchemaBinaryCodec(LocalSchemaRegistry.DEFAULT).encode(new KafkaMessageDto("value"));
+
+        //when
+        SerializationException e = assertThrows(SerializationException.class, () -> codec.decode(data));
+
+        //then
+        assertMessageContains(e, "Неизвестная схема");
+    }
+
+    @Test
+    @DisplayName("Обрезанная запись любой длины - SerializationException, а не BufferUnderflowException")
+    void test_50() {
+        //given
+        byte[] data = codec.encode(new SampleDto("значение", -1234567890123L));
+
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+
+            //when
+            SerializationException e = assertThrows(SerializationException.class, () -> codec.decode(truncated),
+                                                    "Обрезано до " + length + " байт");
+
+            //then
+            assertMessageContains(e, "Запись обрезана");
+        }
+    }
+
+    @Test
+    @DisplayName("Запись с заголовком BINARY читается десериализатором консьюмера в тот же DTO")
+    void test_60() {
+        //given
+        KafkaMessageDto dto = new KafkaMessageDto("значение");
+        RecordHeaders headers = new RecordHeaders();
+        ValueFormat.BINARY.addTo(headers);
+
+        try (FormatSelectingSerializer serializer = new FormatSelectingSerializer();
+             FormatDetectingDeserializer deserializer = new FormatDetectingDeserializer()) {
+            //when
+            byte[] data = serializer.serialize("topic", headers, dto);
+            Object decoded = deserializer.deserialize("topic", headers, data);
+
+            //then
+            assertTrue(SchemaBinaryCodec.isBinary(data));
+            assertEquals(dto, decoded);
+        }
+    }
+}
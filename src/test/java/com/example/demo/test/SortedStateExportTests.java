@@ -0,0 +1,132 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.state.SortedStateExporter;
+import com.example.demo.state.SortedStateReader;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static java.lang.String.format;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"state.export.path=target/test-export",
+                              "state.export.run-bytes=4096",
+                              "state.export.block-size=1024"})
+@DisplayName("Выгрузка состояния топика в отсортированный сжатый файл")
+class SortedStateExportTests extends AbstractKafkaTest {
+
+    static final String TOPIC = "export-test";
+    static final int PARTITIONS = 4;
+    static final int KEYS = 2000;
+    static final int ROUNDS = 3;
+    static final int BIG_VALUE_BYTES = 10_000;
+
+    static List<String> results = new ArrayList<>();
+
+    @Autowired
+    SortedStateExporter exporter;
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    @Test
+    @DisplayName("Перезаписанные ключи, tombstone, несколько прогонов на партицию и запись больше блока")
+    void test_10() throws Exception {
+        //given
+        createTopic(TopicBuilder.name(TOPIC).partitions(PARTITIONS).build());
+        // ключи ASCII, поэтому порядок строк совпадает с беззнаковым порядком байт
+        Map<String, String> expected = new TreeMap<>();
+        try (KafkaProducer<String, byte[]> producer = createProducer()) {
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int k = 0; k < KEYS; k++) {
+                    send(producer, key(k), round + "-" + k, expected);
+                }
+            }
+            // каждый десятый ключ удален
+            for (int k = 0; k < KEYS; k += 10) {
+                send(producer, key(k), null, expected);
+            }
+            // удаленный и снова записанный ключ должен остаться
+            send(producer, key(10), "revived", expected);
+            send(producer, "big", "x".repeat(BIG_VALUE_BYTES), expected);
+            producer.flush();
+        }
+
+        //when
+        SortedStateExporter.ExportResult result = exporter.export(TOPIC);
+
+        //then
+        assertEquals(PARTITIONS, result.partitions());
+        assertTrue(result.runs() > PARTITIONS, "Ожидали несколько прогонов на партицию, прогонов: " + result.runs());
+        assertEquals(expected.size(), result.keys());
+
+        try (SortedStateReader reader = new SortedStateReader(Path.of(result.path()))) {
+            assertEquals(expected.size(), reader.getKeyCount());
+
+            List<String> keys = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            reader.forEach((key, value) -> {
+                keys.add(new String(key, StandardCharsets.UTF_8));
+                values.add(new String(value, StandardCharsets.UTF_8));
+            });
+            assertEquals(new ArrayList<>(expected.keySet()), keys);
+            assertEquals(new ArrayList<>(expected.values()), values);
+
+            for (Map.Entry<String, String> entry : expected.entrySet()) {
+                byte[] value = reader.get(entry.getKey().getBytes(StandardCharsets.UTF_8)).orElseThrow();
+                assertArrayEquals(entry.getValue().getBytes(StandardCharsets.UTF_8), value);
+            }
+            for (int k = 20; k < KEYS; k += 10) {
+                assertTrue(reader.get(key(k).getBytes(StandardCharsets.UTF_8)).isEmpty(), "Удаленный ключ в выгрузке: " + key(k));
+            }
+            assertTrue(reader.get("missing".getBytes(StandardCharsets.UTF_8)).isEmpty());
+
+            results.add(format("Записей:%s Прогонов:%s Ключей:%s Блоков:%s Сырых байт:%s Файл:%s байт (%.1f%%) за %s мс",
+                               result.records(), result.runs(), result.keys(), reader.getBlockCount(),
+                               result.rawBytes(), result.fileBytes(), 100.0 * result.fileBytes() / result.rawBytes(), result.durationMs()));
+        }
+    }
+
+    private static void send(KafkaProducer<String, byte[]> producer, String key, String value, Map<String, String> expected) {
+        producer.send(new ProducerRecord<>(TOPIC, key, value == null ? null : value.getBytes(StandardCharsets.UTF_8)));
+        if (value == null) {
+            expected.remove(key);
+        } else {
+            expected.put(key, value);
+        }
+    }
+
+    private static KafkaProducer<String, byte[]> createProducer() {
+        Properties properties = new Properties();
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        return new KafkaProducer<>(properties);
+    }
+
+    private static String key(int k) {
+        return format("key-%05d", k);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.TopicConfigBuilder;
+import com.example.demo.TopicScanner;
+import com.example.demo.TopicScanner.ScanResult;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+import static org.apache.kafka.common.config.TopicConfig.CLEANUP_POLICY_COMPACT;
+
+@DisplayName("Влияние delete.retention.ms на объем и время перечитывания compacted топика с tombstone")
+class TombstoneReplayTests extends AbstractKafkaTest {
+
+    static final int MSG_COUNT = 10_000;
+    static final int ROLL_COUNT = 12;
+    static final Duration ROLL_INTERVAL = Duration.ofSeconds(5);
+
+    static List<String> results = new ArrayList<>();
+
+    TopicScanner topicScanner = new TopicScanner(kafka.getBootstrapServers());
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    @Test
+    @DisplayName("Tombstone удаляются почти сразу после компакции, dr:100")
+    void test_10() {
+        measureReplay("tombstones1", 100L);
+    }
+
+    @Test
+    @DisplayName("Tombstone живут дольше времени наблюдения, dr:600000")
+    void test_20() {
+        measureReplay("tombstones2", 600_000L);
+    }
+
+    @Test
+    @DisplayName("Tombstone с дефолтным сроком жизни, dr:86400000")
+    void test_30() {
+        measureReplay("tombstones3", 86_400_000L);
+    }
+
+    private void measureReplay(String topicName, long deleteRetentionMs) {
+        //given
+        Map<String, String> config = TopicConfigBuilder.cleanupPolicy(CLEANUP_POLICY_COMPACT)
+                .setMaxCompactionLagMs(1000L)
+                .setDeleteRetentionMs(deleteRetentionMs)
+                .setSegmentMs(1000L)
+                .setMinCleanableDirtyRatio(0.01)
+                .build();
+        NewTopic topic = TopicBuilder.name(topicName).configs(config).build();
+        createTopic(topic);
+
+        List<KafkaRecord> messages = generateKafkaMessages(MSG_COUNT, 0);
+        List<KafkaRecord> tombstones = messages.stream()
+                .map(message -> new KafkaRecord(message.key(), null))
+                .toList();
+
+        //when
+        fillTopicAndMeasure(topicName, messages);
+        fillTopicAndMeasure(topicName, tombstones);
+        ScanResult beforeCompaction = topicScanner.scan(topicName);
+
+        // сегмент закрывается только при следующей записи после segment.ms, поэтому периодически пишем маркер
+        for (int i = 0; i < ROLL_COUNT; i++) {
+            sleep(ROLL_INTERVAL);
+            fillTopicAndMeasure(topicName, List.of(new KafkaRecord("segment-roll", Integer.toString(i))));
+        }
+        ScanResult afterCompaction = topicScanner.scan(topicName);
+
+        //then
+        results.add(format("""
+                                   Топик:%s dr:%s Ключей:%s, удалены все
+                                   До компакции   записей:%s tombstone:%s байт:%s время:%sмс
+                                   После %sс      записей:%s tombstone:%s байт:%s время:%sмс""",
+                           topicName, deleteRetentionMs, MSG_COUNT,
+                           beforeCompaction.records(), beforeCompaction.tombstones(), beforeCompaction.bytes(), beforeCompaction.duration().toMillis(),
+                           ROLL_INTERVAL.multipliedBy(ROLL_COUNT).toSeconds(),
+                           afterCompaction.records(), afterCompaction.tombstones(), afterCompaction.bytes(), afterCompaction.duration().toMillis()));
+    }
+}
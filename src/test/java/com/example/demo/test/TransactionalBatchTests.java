@@ -0,0 +1,150 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.TopicConfigBuilder;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.dto.SendResultDto;
+import com.example.demo.kafka.TransactionalSender;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static java.lang.String.format;
+import static org.apache.kafka.common.config.TopicConfig.CLEANUP_POLICY_COMPACT;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Транзакции: пропускная способность в зависимости от размера пачки и невидимость отмененных записей")
+class TransactionalBatchTests extends AbstractKafkaTest {
+
+    static final int MSG_COUNT = 10_000;
+    static final int ABORTED_COUNT = 1000;
+    static final int COMMITTED_COUNT = 10;
+
+    static List<String> results = new ArrayList<>();
+
+    @Autowired
+    TransactionalSender transactionalSender;
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    @ParameterizedTest(name = "Без транзакций, все записи сразу, повтор {0}")
+    @ValueSource(ints = {1, 2, 3})
+    void test_10(int repeat) {
+        //given
+        String topicName = "tx-baseline";
+        createTopic(topicName);
+        List<KafkaRecord> messages = generateKafkaMessages(MSG_COUNT, 0);
+
+        //when
+        SendMeasurement measurement = fillTopicAndMeasure(topicName, messages);
+
+        //then
+        results.add(format("Без транзакций  пачка:%-5s Сообщений:%s %.0f msg/s", "-", MSG_COUNT, measurement.throughput()));
+    }
+
+    @ParameterizedTest(name = "Транзакция на пачку из {0} записей")
+    @ValueSource(ints = {1, 10, 100, 1000, 10_000})
+    void test_20(int batchSize) {
+        //given
+        String topicName = "tx-batch-" + batchSize;
+        createTopic(topicName);
+        List<KafkaRecord> messages = generateKafkaMessages(MSG_COUNT, 0);
+
+        //when
+        long before = System.nanoTime();
+        for (int from = 0; from < messages.size(); from += batchSize) {
+            List<ProducerRecord<String, Object>> batch = messages.subList(from, Math.min(from + batchSize, messages.size())).stream()
+                    .map(message -> new ProducerRecord<String, Object>(topicName, message.key(), new KafkaMessageDto(message.value())))
+                    .toList();
+            List<SendResultDto> sendResults = transactionalSender.sendBatch(batch);
+            assertTrue(sendResults.stream().allMatch(result -> result.getError() == null), "Транзакция отменена");
+        }
+        long duration = System.nanoTime() - before;
+
+        //then
+        results.add(format("Транзакционно   пачка:%-5s Сообщений:%s %.0f msg/s", batchSize, MSG_COUNT, MSG_COUNT * 1_000_000_000.0 / duration));
+    }
+
+    @Test
+    @DisplayName("Записи отмененной транзакции не видны консьюмеру с read_committed")
+    void test_30() {
+        //given
+        String topicName = "tx-abort";
+        createTopic(topicName);
+        List<ProducerRecord<String, Object>> aborted = new ArrayList<>();
+        for (int i = 0; i < ABORTED_COUNT; i++) {
+            aborted.add(new ProducerRecord<>(topicName, "aborted-" + i, new KafkaMessageDto(Integer.toString(i))));
+        }
+        // значение, которое не сериализуется в JSON - отправка падает уже после отправки остальных записей пачки
+        aborted.add(new ProducerRecord<>(topicName, "aborted-unserializable", new Object()));
+        List<ProducerRecord<String, Object>> committed = new ArrayList<>();
+        for (int i = 0; i < COMMITTED_COUNT; i++) {
+            committed.add(new ProducerRecord<>(topicName, "committed-" + i, new KafkaMessageDto(Integer.toString(i))));
+        }
+
+        //when
+        List<SendResultDto> abortedResults = transactionalSender.sendBatch(aborted);
+        List<SendResultDto> committedResults = transactionalSender.sendBatch(committed);
+
+        //then
+        assertTrue(abortedResults.stream().allMatch(result -> result.getError() != null), "Транзакция не отменена");
+        assertTrue(committedResults.stream().allMatch(result -> result.getError() == null), "Транзакция отменена");
+        List<String> committedKeys = readKeys(topicName, "read_committed", COMMITTED_COUNT);
+        List<String> uncommittedKeys = readKeys(topicName, "read_uncommitted", COMMITTED_COUNT);
+        results.add(format("Отмененная транзакция: в логе %s записей из %s, видно с read_committed %s",
+                           uncommittedKeys.stream().filter(key -> key.startsWith("aborted-")).count(), ABORTED_COUNT,
+                           committedKeys.stream().filter(key -> key.startsWith("aborted-")).count()));
+        assertEquals(committed.stream().map(ProducerRecord::key).toList(), committedKeys);
+    }
+
+    /**
+     * Читает топик с начала, пока не встретит все записи закоммиченной после отмененной пачки.
+     */
+    private List<String> readKeys(String topicName, String isolationLevel, int committedCount) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, UUID.randomUUID().toString());
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, isolationLevel);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        List<String> keys = new ArrayList<>();
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(properties)) {
+            consumer.subscribe(List.of(topicName));
+            await().atMost(Duration.ofSeconds(30))
+                    .until(() -> {
+                        consumer.poll(Duration.ofMillis(200)).forEach(record -> keys.add(record.key()));
+                        return keys.stream().filter(key -> key.startsWith("committed-")).count() >= committedCount;
+                    });
+        }
+        return keys;
+    }
+
+    private void createTopic(String topicName) {
+        Map<String, String> config = TopicConfigBuilder.cleanupPolicy(CLEANUP_POLICY_COMPACT).build();
+        NewTopic topic = TopicBuilder.name(topicName).configs(config).build();
+        createTopic(topic);
+    }
+}
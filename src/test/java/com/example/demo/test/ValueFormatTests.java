@@ -0,0 +1,97 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractKafkaTest;
+import com.example.demo.LatencyHistogram;
+import com.example.demo.TopicConfigBuilder;
+import com.example.demo.TopicScanner;
+import com.example.demo.dto.KafkaMessageDto;
+import com.example.demo.serde.ValueFormat;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static java.lang.String.format;
+import static org.apache.kafka.common.config.TopicConfig.CLEANUP_POLICY_COMPACT;
+
+@DisplayName("JSON против бинарного формата по схеме: размер записи и скорость отправки")
+class ValueFormatTests extends AbstractKafkaTest {
+
+    static final int MSG_COUNT = 20_000;
+
+    static List<String> results = new ArrayList<>();
+
+    @Autowired
+    KafkaTemplate<String, Object> objectKafkaTemplate;
+
+    TopicScanner topicScanner = new TopicScanner(kafka.getBootstrapServers());
+
+    @AfterAll
+    public static void afterAll() {
+        System.out.println("----------------------------");
+        results.forEach(System.out::println);
+    }
+
+    @Test
+    @DisplayName("JSON с коротким идентификатором типа в заголовке")
+    void test_10() {
+        sendAndMeasure("format-json", ValueFormat.JSON);
+    }
+
+    @Test
+    @DisplayName("Бинарный формат по схеме")
+    void test_20() {
+        sendAndMeasure("format-binary", ValueFormat.BINARY);
+    }
+
+    private void sendAndMeasure(String topicName, ValueFormat valueFormat) {
+        //given
+        Map<String, String> config = TopicConfigBuilder.cleanupPolicy(CLEANUP_POLICY_COMPACT).build();
+        NewTopic topic = TopicBuilder.name(topicName).configs(config).build();
+        createTopic(topic);
+        List<KafkaRecord> messages = generateKafkaMessages(MSG_COUNT, 0);
+
+        //when
+        List<SendMeasurement> measurements = new ArrayList<>();
+        for (int i = 0; i < REPEAT_NUM; i++) {
+            measurements.add(send(topicName, messages, valueFormat));
+        }
+        TopicScanner.ScanResult scan = topicScanner.scan(topicName);
+
+        //then
+        MeasurementSummary summary = summarize(measurements);
+        results.add(format("""
+                                   Формат:%s Сообщений:%s Повторы:%s
+                                   Байт на запись: значение+ключ:%.1f заголовки:%.1f
+                                   Пропускная способность, msg/s Avg:%.0f, задержка до ack p99:%.3fмс""",
+                           valueFormat, MSG_COUNT, REPEAT_NUM,
+                           (double) scan.bytes() / scan.records(), (double) scan.headerBytes() / scan.records(),
+                           summary.avgThroughput(), summary.p99Ms()));
+    }
+
+    private SendMeasurement send(String topicName, List<KafkaRecord> messages, ValueFormat valueFormat) {
+        LatencyHistogram latencies = new LatencyHistogram();
+        long before = System.nanoTime();
+        CompletableFuture<?>[] futures = messages.stream()
+                .map(message -> {
+                    ProducerRecord<String, Object> record = new ProducerRecord<>(topicName, message.key(), new KafkaMessageDto(message.value()));
+                    valueFormat.addTo(record.headers());
+                    long sentAt = System.nanoTime();
+                    return objectKafkaTemplate.send(record)
+                            .whenComplete((result, e) -> latencies.record(System.nanoTime() - sentAt));
+                })
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+        return new SendMeasurement(Duration.ofNanos(System.nanoTime() - before), latencies);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.test;
+
+import com.example.demo.AbstractPingUnderLoadTest;
+import com.example.demo.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = {"virtual-threads.enabled=true", "virtual-threads.listeners-enabled=true"})
+@DisplayName("Tomcat и листнеры на виртуальных потоках")
+class VirtualThreadsPingTests extends AbstractPingUnderLoadTest {
+
+    /**
+     * Каждый запрос получает свой виртуальный поток, поэтому /api/ping не ждет ни одного /api/sleep.
+     */
+    @Override
+    protected void assertPingLatency(LatencyHistogram latencies) {
+        Duration max = latencies.getMax();
+        assertTrue(max.toMillis() < SLEEP_MS / 2, "/api/ping ждал освобождения потока: max " + max.toMillis() + "мс");
+    }
+}